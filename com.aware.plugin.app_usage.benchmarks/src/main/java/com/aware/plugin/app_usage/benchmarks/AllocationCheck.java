@@ -0,0 +1,178 @@
+package com.aware.plugin.app_usage.benchmarks;
+
+import com.aware.plugin.app_usage.core.AppFilterMatcher;
+import com.aware.plugin.app_usage.core.EventDecoder;
+import com.aware.plugin.app_usage.core.PipelineMetrics;
+import com.aware.plugin.app_usage.core.SessionEngine;
+import com.aware.plugin.app_usage.core.SessionJournal;
+import com.aware.plugin.app_usage.core.SessionSink;
+import com.aware.plugin.app_usage.core.TraceBuffer;
+import com.aware.plugin.app_usage.core.UsageEvent;
+import com.aware.plugin.app_usage.tools.TraceGenerator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Allocation regression check for the per-event hot path
+ * Drives decode and sessionization over a large seeded trace, measures allocated bytes per event with
+ * ThreadMXBean.getThreadAllocatedBytes after warm-up, and exits non-zero when a stage exceeds the
+ * committed budget (allocation-budget.properties). A stray per-event `new Date` or string concatenation
+ * shows up here as tens of bytes per event. The session engine is built like AppUsageSessionManager
+ * builds it (metrics, trace buffer and a memory-mapped journal), so their per-session cost is measured too.
+ *
+ * Run: ./gradlew :com.aware.plugin.app_usage.benchmarks:allocationCheck (also part of `check`)
+ */
+public final class AllocationCheck {
+
+    private static final int EVENTS = 1000000;
+    private static final int BATCH_SIZE = 10000; // events per periodic check
+    private static final int WARMUP_ROUNDS = 3;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final TraceArrays trace;
+    private final EventDecoder decoder;
+    private final AppFilterMatcher filter;
+    private final SessionJournal journal;
+    // Process-wide in the plugin (PipelineMetrics.global(), TraceBuffer.global()), so not part of a round
+    private final PipelineMetrics metrics = new PipelineMetrics();
+    private final TraceBuffer traceBuffer = new TraceBuffer(TraceBuffer.DEFAULT_CAPACITY);
+    private final List<UsageEvent> decoded = new ArrayList<>();
+    private final List<UsageEvent> batch = new ArrayList<>(BATCH_SIZE);
+    private long sessions;
+
+    private AllocationCheck(SessionJournal journal) {
+        this.journal = journal;
+        TraceGenerator generator = new TraceGenerator(7, 300, 3650, 120);
+        trace = TraceArrays.generate(generator, EVENTS);
+
+        final Map<String, EventDecoder.AppDescriptor> installed = new HashMap<>();
+        installed.put(TraceGenerator.SYSTEM_PACKAGE, new EventDecoder.AppDescriptor("Android System", true));
+        installed.put(TraceGenerator.LAUNCHER_PACKAGE, new EventDecoder.AppDescriptor("Launcher", true));
+        String[] packages = generator.getPackages();
+        for (String packageName : packages) {
+            installed.put(packageName, new EventDecoder.AppDescriptor(packageName, false));
+        }
+        decoder = new EventDecoder(new EventDecoder.AppResolver() {
+            @Override
+            public EventDecoder.AppDescriptor resolve(String packageName) {
+                return installed.get(packageName);
+            }
+        });
+
+        // Blacklist a tenth of the apps, with a wildcard rule next to the exact ones
+        List<String> rules = new ArrayList<>();
+        for (int i = 0; i < packages.length; i += 10) {
+            rules.add(packages[i]);
+        }
+        rules.add("*keyboard*");
+        filter = AppFilterMatcher.compile(rules);
+    }
+
+    public static void main(String[] args) throws IOException {
+        File budgetFile = new File(args.length > 0 ? args[0] : "allocation-budget.properties");
+        Properties budget = new Properties();
+        try (InputStream in = new FileInputStream(budgetFile)) {
+            budget.load(in);
+        }
+
+        File journalFile = File.createTempFile("allocation-check", ".journal");
+        journalFile.deleteOnExit();
+        double decodeBytes;
+        double sessionBytes;
+        try (SessionJournal journal = SessionJournal.open(journalFile)) {
+            AllocationCheck check = new AllocationCheck(journal);
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                check.decodeAll();
+                check.sessionizeAll();
+            }
+            decodeBytes = check.measureDecode();
+            sessionBytes = check.measureSessionize();
+        }
+
+        boolean passed = report("decode", decodeBytes, budget)
+                & report("sessionize", sessionBytes, budget);
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Bytes allocated per raw event by the decode step (UsageEvent objects for decoded events included)
+     */
+    private double measureDecode() {
+        long before = allocatedBytes();
+        decodeAll();
+        return (allocatedBytes() - before) / (double) trace.size;
+    }
+
+    /**
+     * Bytes allocated per decoded event by the session engine (session objects included)
+     */
+    private double measureSessionize() {
+        long before = allocatedBytes();
+        sessionizeAll();
+        return (allocatedBytes() - before) / (double) decoded.size();
+    }
+
+    private void decodeAll() {
+        decoded.clear();
+        for (int start = 0; start < trace.size; start += BATCH_SIZE) {
+            // Every check reloads the filter, which also forgets resolved app info
+            decoder.configure(filter, false);
+            int end = Math.min(trace.size, start + BATCH_SIZE);
+            for (int i = start; i < end; i++) {
+                UsageEvent event = decoder.decode(trace.packages[i], trace.eventTypes[i], trace.timestamps[i]);
+                if (event != null) {
+                    decoded.add(event);
+                }
+            }
+        }
+    }
+
+    private void sessionizeAll() {
+        SessionEngine engine = new SessionEngine(new SessionSink() {
+            @Override
+            public void onSession(String packageName, String appName, boolean isSystemApp, long startTime, long endTime) {
+                sessions++;
+            }
+        }, SessionEngine.DEFAULT_MIN_DURATION_MS, metrics, traceBuffer, journal);
+        for (int start = 0; start < decoded.size(); start += BATCH_SIZE) {
+            batch.clear();
+            int end = Math.min(decoded.size(), start + BATCH_SIZE);
+            for (int i = start; i < end; i++) {
+                batch.add(decoded.get(i));
+            }
+            engine.processEvents(batch);
+        }
+        engine.closeAll(Long.MAX_VALUE / 2);
+    }
+
+    private long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static boolean report(String stage, double bytesPerEvent, Properties budget) {
+        String limit = budget.getProperty(stage + ".bytesPerEvent");
+        if (limit == null) {
+            System.out.printf(Locale.ROOT, "%-10s %8.2f B/event  (no budget)%n", stage, bytesPerEvent);
+            return false;
+        }
+        double max = Double.parseDouble(limit);
+        boolean passed = bytesPerEvent <= max;
+        System.out.printf(Locale.ROOT, "%-10s %8.2f B/event  budget %8.2f  %s%n",
+                stage, bytesPerEvent, max, passed ? "OK" : "OVER BUDGET");
+        return passed;
+    }
+}
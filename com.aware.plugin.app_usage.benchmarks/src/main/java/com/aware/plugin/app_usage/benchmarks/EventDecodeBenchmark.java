@@ -0,0 +1,90 @@
+package com.aware.plugin.app_usage.benchmarks;
+
+import com.aware.plugin.app_usage.core.AppFilterMatcher;
+import com.aware.plugin.app_usage.core.EventDecoder;
+import com.aware.plugin.app_usage.core.UsageEvent;
+import com.aware.plugin.app_usage.tools.TraceGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode step of one periodic check (relevance, filter, app info, UsageEvent creation), per raw event
+ * The app resolver is an in-memory map, so this measures the plugin's own cost, not PackageManager IPC
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDecodeBenchmark {
+
+    private static final int EVENTS = 10000;
+    private static final int APPS = 300;
+
+    @Param({"false", "true"})
+    public boolean whitelist;
+
+    private TraceArrays trace;
+    private EventDecoder decoder;
+    private AppFilterMatcher filter;
+
+    @Setup
+    public void setup() {
+        TraceGenerator generator = new TraceGenerator(42, APPS, 365, 120);
+        trace = TraceArrays.generate(generator, EVENTS);
+        String[] packages = generator.getPackages();
+
+        final Map<String, EventDecoder.AppDescriptor> installed = new HashMap<>();
+        installed.put(TraceGenerator.SYSTEM_PACKAGE, new EventDecoder.AppDescriptor("Android System", true));
+        installed.put(TraceGenerator.LAUNCHER_PACKAGE, new EventDecoder.AppDescriptor("Launcher", true));
+        for (String packageName : packages) {
+            installed.put(packageName, new EventDecoder.AppDescriptor(packageName, false));
+        }
+        decoder = new EventDecoder(new EventDecoder.AppResolver() {
+            @Override
+            public EventDecoder.AppDescriptor resolve(String packageName) {
+                return installed.get(packageName);
+            }
+        });
+
+        // A tenth of the apps listed (plus the system package in whitelist mode)
+        List<String> rules = new ArrayList<>();
+        for (int i = 0; i < APPS; i += 10) {
+            rules.add(packages[i]);
+        }
+        if (whitelist) {
+            rules.add(TraceGenerator.SYSTEM_PACKAGE);
+        }
+        filter = AppFilterMatcher.compile(rules);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void decodeCheck(Blackhole blackhole) {
+        // Each check reloads the filter configuration, which also resets resolved app info
+        decoder.configure(filter, whitelist);
+        for (int i = 0; i < trace.size; i++) {
+            UsageEvent event = decoder.decode(trace.packages[i], trace.eventTypes[i], trace.timestamps[i]);
+            blackhole.consume(event);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.aware.plugin.app_usage.benchmarks;
+
+import com.aware.plugin.app_usage.core.AppFilterMatcher;
+import com.aware.plugin.app_usage.core.EventDecoder;
+import com.aware.plugin.app_usage.tools.TraceGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * App list filter check (EventDecoder.isExcluded, formerly Plugin.isAppBlacklisted) per event
+ * Rule lists are mostly exact package names with about 5% wildcard rules; half of the looked-up
+ * packages are listed
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterMatchBenchmark {
+
+    private static final int LOOKUPS = 1024; // power of two, see MASK
+    private static final int MASK = LOOKUPS - 1;
+
+    @Param({"10", "100", "1000", "5000"})
+    public int rules;
+
+    @Param({"false", "true"})
+    public boolean whitelist;
+
+    private EventDecoder decoder;
+    private String[] lookups;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        List<String> ruleList = new ArrayList<>(rules);
+        for (int i = 0; i < rules; i++) {
+            if (i % 20 == 19) {
+                switch ((i / 20) % 3) {
+                    case 0:
+                        ruleList.add("com.vendor" + (i % 37) + ".tool*");
+                        break;
+                    case 1:
+                        ruleList.add("*.plugin" + i);
+                        break;
+                    default:
+                        ruleList.add("*keyboard" + i + "*");
+                        break;
+                }
+            } else {
+                ruleList.add(TraceGenerator.packageName(2 * i)); // listed: even app indices
+            }
+        }
+
+        decoder = new EventDecoder(null);
+        decoder.configure(AppFilterMatcher.compile(ruleList), whitelist);
+
+        lookups = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            int app = random.nextInt(rules);
+            lookups[i] = TraceGenerator.packageName(i % 2 == 0 ? 2 * app : 2 * app + 1);
+        }
+    }
+
+    @Benchmark
+    public boolean isExcluded() {
+        return decoder.isExcluded(lookups[cursor++ & MASK]);
+    }
+}
@@ -0,0 +1,79 @@
+package com.aware.plugin.app_usage.benchmarks;
+
+import com.aware.plugin.app_usage.core.AppFilterMatcher;
+import com.aware.plugin.app_usage.core.EventDecoder;
+import com.aware.plugin.app_usage.core.SessionEngine;
+import com.aware.plugin.app_usage.core.SessionSink;
+import com.aware.plugin.app_usage.core.UsageEvent;
+import com.aware.plugin.app_usage.tools.TraceGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session engine throughput over the decoded events of seeded synthetic traces
+ * Scores are traces per second; the raw trace has the given event count, about two thirds are decoded
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionizationBenchmark {
+
+    @Param({"10000", "100000"})
+    public int events;
+
+    private List<UsageEvent> trace;
+    private CountingSink sink;
+
+    @Setup
+    public void setup() {
+        // Decoded (relevant) events of a seeded trace
+        EventDecoder decoder = new EventDecoder(new EventDecoder.AppResolver() {
+            @Override
+            public EventDecoder.AppDescriptor resolve(String packageName) {
+                return new EventDecoder.AppDescriptor(packageName, false);
+            }
+        });
+        decoder.configure(AppFilterMatcher.EMPTY, false);
+        TraceArrays raw = TraceArrays.generate(new TraceGenerator(42, 300, 365, 120), events);
+        trace = new ArrayList<>(raw.size);
+        for (int i = 0; i < raw.size; i++) {
+            UsageEvent event = decoder.decode(raw.packages[i], raw.eventTypes[i], raw.timestamps[i]);
+            if (event != null) trace.add(event);
+        }
+        sink = new CountingSink();
+    }
+
+    @Benchmark
+    public long processTrace() {
+        SessionEngine engine = new SessionEngine(sink);
+        engine.processEvents(trace); // already in timestamp order, so the sort is a single pass
+        engine.closeAll(Long.MAX_VALUE / 2);
+        return sink.sessions;
+    }
+
+    private static final class CountingSink implements SessionSink {
+        long sessions;
+
+        @Override
+        public void onSession(String packageName, String appName, boolean isSystemApp, long startTime, long endTime) {
+            sessions++;
+        }
+    }
+}
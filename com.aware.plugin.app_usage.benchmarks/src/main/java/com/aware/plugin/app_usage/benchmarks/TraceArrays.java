@@ -0,0 +1,37 @@
+package com.aware.plugin.app_usage.benchmarks;
+
+import com.aware.plugin.app_usage.tools.TraceGenerator;
+
+/**
+ * Raw events of a generated trace held in flat arrays, so benchmark loops do not allocate
+ */
+final class TraceArrays implements TraceGenerator.EventConsumer {
+
+    final String[] packages;
+    final int[] eventTypes;
+    final long[] timestamps;
+    int size;
+
+    private TraceArrays(int capacity) {
+        packages = new String[capacity];
+        eventTypes = new int[capacity];
+        timestamps = new long[capacity];
+    }
+
+    /**
+     * First eventCount events of a seeded trace (many days, so it is never cut short)
+     */
+    static TraceArrays generate(TraceGenerator generator, int eventCount) {
+        TraceArrays trace = new TraceArrays(eventCount);
+        generator.generate(trace, eventCount);
+        return trace;
+    }
+
+    @Override
+    public void onEvent(String packageName, int eventType, long timestamp) {
+        packages[size] = packageName;
+        eventTypes[size] = eventType;
+        timestamps[size] = timestamp;
+        size++;
+    }
+}
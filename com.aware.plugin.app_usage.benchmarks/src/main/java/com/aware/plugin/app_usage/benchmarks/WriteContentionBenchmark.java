@@ -0,0 +1,122 @@
+package com.aware.plugin.app_usage.benchmarks;
+
+import com.aware.plugin.app_usage.core.SingleWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Row writes from 4 concurrent threads: synchronized per-call transactions (Provider before the
+ * single writer) against SingleWriter, which commits everything queued in one transaction
+ * The store simulates a commit (journal sync) by waiting commitMicros; the row write itself is cheap.
+ * Scores are committed writes per second over all threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class WriteContentionBenchmark {
+
+    @Param({"synchronized", "single_writer"})
+    public String mode;
+
+    @Param({"0", "200"})
+    public int commitMicros;
+
+    private SimulatedStore store;
+    private SingleWriter<SimulatedStore> writer;
+
+    private static final SingleWriter.Command<SimulatedStore, Long> INSERT =
+            new SingleWriter.Command<SimulatedStore, Long>() {
+                @Override
+                public Long execute(SimulatedStore store) {
+                    return store.insert();
+                }
+            };
+
+    @Setup
+    public void setup() {
+        store = new SimulatedStore(commitMicros * 1000L);
+        if ("single_writer".equals(mode)) {
+            writer = new SingleWriter<>(store, new SingleWriter.Transactions<SimulatedStore>() {
+                @Override
+                public void begin(SimulatedStore s) {
+                    s.begin();
+                }
+
+                @Override
+                public void markSuccessful(SimulatedStore s) {
+                }
+
+                @Override
+                public void end(SimulatedStore s) {
+                    s.commit();
+                }
+            }, "BenchmarkWriter");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    @Benchmark
+    public long write() throws Exception {
+        if (writer != null) {
+            return writer.execute(INSERT);
+        }
+        synchronized (store) {
+            store.begin();
+            long id = store.insert();
+            store.commit();
+            return id;
+        }
+    }
+
+    /**
+     * Stand-in for SQLiteDatabase: a row write is a counter, a commit waits like a journal sync
+     */
+    static final class SimulatedStore {
+        private final long commitNanos;
+        private long rows;
+        private long transactions;
+
+        SimulatedStore(long commitNanos) {
+            this.commitNanos = commitNanos;
+        }
+
+        void begin() {
+            transactions++;
+        }
+
+        long insert() {
+            return ++rows;
+        }
+
+        void commit() {
+            if (commitNanos > 0) {
+                LockSupport.parkNanos(commitNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.aware.plugin.app_usage.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compiled app list rules used by the ingestion path
+ * Supports exact package names plus wildcard rules:
+ * - "com.google.android.*" : prefix rule, matched by walking a trie
+ * - "*.inputmethod"        : suffix rule, matched by walking a reversed trie
+ * - "*keyboard*"           : substring rule, matched by an Aho-Corasick automaton
+ * - any other glob ("com.*.keyboard", "com.foo.?") is verified only for names sharing its literal prefix
+ * Exact, prefix, suffix and substring rules are evaluated in time linear in the package name length,
+ * independent of the number of rules.
+ */
+public final class AppFilterMatcher {
+
+    public static final AppFilterMatcher EMPTY = compile(Collections.<String>emptySet());
+
+    private final Set<String> exactRules;
+    private final Node prefixTrie;
+    private final Node suffixTrie;
+    private final Node substringAutomaton;
+    private final boolean hasPrefixRules;
+    private final boolean hasSuffixRules;
+    private final boolean hasSubstringRules;
+    private final boolean hasGlobRules;
+    private final int ruleCount;
+
+    private AppFilterMatcher(Set<String> exactRules, Node prefixTrie, Node suffixTrie, Node substringAutomaton,
+                             boolean hasPrefixRules, boolean hasSuffixRules, boolean hasSubstringRules,
+                             boolean hasGlobRules, int ruleCount) {
+        this.exactRules = exactRules;
+        this.prefixTrie = prefixTrie;
+        this.suffixTrie = suffixTrie;
+        this.substringAutomaton = substringAutomaton;
+        this.hasPrefixRules = hasPrefixRules;
+        this.hasSuffixRules = hasSuffixRules;
+        this.hasSubstringRules = hasSubstringRules;
+        this.hasGlobRules = hasGlobRules;
+        this.ruleCount = ruleCount;
+    }
+
+    /**
+     * Whether an app list entry is a wildcard rule rather than a package name
+     */
+    public static boolean isPattern(String rule) {
+        return rule.indexOf('*') >= 0 || rule.indexOf('?') >= 0;
+    }
+
+    /**
+     * Compile app list entries into a matcher
+     */
+    public static AppFilterMatcher compile(Collection<String> rules) {
+        Set<String> exact = new HashSet<>();
+        Node prefixTrie = new Node();
+        Node suffixTrie = new Node();
+        Node substringAutomaton = new Node();
+        boolean hasPrefix = false;
+        boolean hasSuffix = false;
+        boolean hasSubstring = false;
+        boolean hasGlob = false;
+        int count = 0;
+
+        for (String raw : rules) {
+            if (raw == null) continue;
+            String rule = raw.trim();
+            if (rule.isEmpty()) continue;
+            count++;
+
+            if (!isPattern(rule)) {
+                exact.add(rule);
+                continue;
+            }
+
+            int firstWildcard = firstWildcard(rule);
+            int lastWildcard = lastWildcard(rule);
+            int length = rule.length();
+
+            if (firstWildcard == length - 1 && rule.charAt(firstWildcard) == '*') {
+                // "prefix*"
+                prefixTrie.insert(rule, 0, length - 1, false).terminal = true;
+                hasPrefix = true;
+            } else if (lastWildcard == 0 && rule.charAt(0) == '*') {
+                // "*suffix"
+                suffixTrie.insert(rule, 1, length, true).terminal = true;
+                hasSuffix = true;
+            } else if (length > 2 && rule.charAt(0) == '*' && rule.charAt(length - 1) == '*'
+                    && firstWildcard(rule.substring(1, length - 1)) < 0) {
+                // "*substring*"
+                substringAutomaton.insert(rule, 1, length - 1, false).terminal = true;
+                hasSubstring = true;
+            } else if (firstWildcard == 0 && rule.charAt(0) == '*' && allStars(rule)) {
+                // "*" alone matches everything
+                prefixTrie.terminal = true;
+                hasPrefix = true;
+            } else {
+                // General glob: attach to the trie node of its literal prefix
+                Node node = prefixTrie.insert(rule, 0, firstWildcard, false);
+                if (node.globs == null) node.globs = new ArrayList<>(1);
+                node.globs.add(rule);
+                hasGlob = true;
+            }
+        }
+
+        if (hasSubstring) {
+            buildFailureLinks(substringAutomaton);
+        }
+
+        return new AppFilterMatcher(exact, prefixTrie, suffixTrie, substringAutomaton,
+                hasPrefix, hasSuffix, hasSubstring, hasGlob, count);
+    }
+
+    /**
+     * Whether the package name is covered by any rule
+     */
+    public boolean matches(String packageName) {
+        if (packageName == null) return false;
+        if (exactRules.contains(packageName)) return true;
+        if ((hasPrefixRules || hasGlobRules) && matchesPrefix(packageName)) return true;
+        if (hasSuffixRules && matchesSuffix(packageName)) return true;
+        return hasSubstringRules && matchesSubstring(packageName);
+    }
+
+    /**
+     * Number of non-empty rules compiled into this matcher
+     */
+    public int size() {
+        return ruleCount;
+    }
+
+    public boolean isEmpty() {
+        return ruleCount == 0;
+    }
+
+    private boolean matchesPrefix(String name) {
+        Node node = prefixTrie;
+        int length = name.length();
+        for (int i = 0; ; i++) {
+            if (node.terminal) return true;
+            if (node.globs != null) {
+                for (int g = 0, n = node.globs.size(); g < n; g++) {
+                    if (globMatches(node.globs.get(g), name)) return true;
+                }
+            }
+            if (i == length) return false;
+            node = node.child(name.charAt(i));
+            if (node == null) return false;
+        }
+    }
+
+    private boolean matchesSuffix(String name) {
+        Node node = suffixTrie;
+        for (int i = name.length() - 1; ; i--) {
+            if (node.terminal) return true;
+            if (i < 0) return false;
+            node = node.child(name.charAt(i));
+            if (node == null) return false;
+        }
+    }
+
+    private boolean matchesSubstring(String name) {
+        Node root = substringAutomaton;
+        Node state = root;
+        for (int i = 0, length = name.length(); i < length; i++) {
+            char c = name.charAt(i);
+            Node next = state.child(c);
+            while (next == null && state != root) {
+                state = state.fail;
+                next = state.child(c);
+            }
+            state = (next != null) ? next : root;
+            if (state.output) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Iterative glob match with '*' (any run) and '?' (any single character)
+     */
+    static boolean globMatches(String pattern, String name) {
+        int p = 0;
+        int n = 0;
+        int starP = -1;
+        int starN = 0;
+        int patternLength = pattern.length();
+        int nameLength = name.length();
+
+        while (n < nameLength) {
+            if (p < patternLength && (pattern.charAt(p) == '?' || pattern.charAt(p) == name.charAt(n))) {
+                p++;
+                n++;
+            } else if (p < patternLength && pattern.charAt(p) == '*') {
+                starP = p++;
+                starN = n;
+            } else if (starP >= 0) {
+                p = starP + 1;
+                n = ++starN;
+            } else {
+                return false;
+            }
+        }
+        while (p < patternLength && pattern.charAt(p) == '*') p++;
+        return p == patternLength;
+    }
+
+    private static int firstWildcard(String rule) {
+        for (int i = 0; i < rule.length(); i++) {
+            char c = rule.charAt(i);
+            if (c == '*' || c == '?') return i;
+        }
+        return -1;
+    }
+
+    private static int lastWildcard(String rule) {
+        for (int i = rule.length() - 1; i >= 0; i--) {
+            char c = rule.charAt(i);
+            if (c == '*' || c == '?') return i;
+        }
+        return -1;
+    }
+
+    private static boolean allStars(String rule) {
+        for (int i = 0; i < rule.length(); i++) {
+            if (rule.charAt(i) != '*') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Breadth-first construction of Aho-Corasick failure links and output flags
+     */
+    private static void buildFailureLinks(Node root) {
+        ArrayDeque<Node> queue = new ArrayDeque<>();
+        root.fail = root;
+        root.output = root.terminal;
+        for (int i = 0; i < root.size; i++) {
+            Node child = root.children[i];
+            child.fail = root;
+            child.output = child.terminal;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            for (int i = 0; i < node.size; i++) {
+                char c = node.labels[i];
+                Node child = node.children[i];
+                Node fail = node.fail;
+                Node target = fail.child(c);
+                while (target == null && fail != root) {
+                    fail = fail.fail;
+                    target = fail.child(c);
+                }
+                child.fail = (target != null && target != child) ? target : root;
+                child.output = child.terminal || child.fail.output;
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Trie node with sorted character labels (binary searched, no boxing on lookup)
+     */
+    private static final class Node {
+        char[] labels = new char[0];
+        Node[] children = new Node[0];
+        int size;
+        boolean terminal;
+        boolean output;
+        Node fail;
+        List<String> globs;
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(labels, 0, size, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node insert(String rule, int from, int to, boolean reversed) {
+            Node node = this;
+            if (reversed) {
+                for (int i = to - 1; i >= from; i--) node = node.getOrAdd(rule.charAt(i));
+            } else {
+                for (int i = from; i < to; i++) node = node.getOrAdd(rule.charAt(i));
+            }
+            return node;
+        }
+
+        private Node getOrAdd(char c) {
+            int index = Arrays.binarySearch(labels, 0, size, c);
+            if (index >= 0) return children[index];
+            int insertAt = -index - 1;
+            if (size == labels.length) {
+                int capacity = Math.max(2, size * 2);
+                labels = Arrays.copyOf(labels, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(labels, insertAt, labels, insertAt + 1, size - insertAt);
+            System.arraycopy(children, insertAt, children, insertAt + 1, size - insertAt);
+            Node child = new Node();
+            labels[insertAt] = c;
+            children[insertAt] = child;
+            size++;
+            return child;
+        }
+    }
+}
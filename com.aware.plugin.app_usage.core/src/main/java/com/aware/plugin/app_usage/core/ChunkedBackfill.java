@@ -0,0 +1,161 @@
+package com.aware.plugin.app_usage.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Catch-up over a long collection gap in parallel time chunks
+ * The gap is split into chunks that are queried and decoded on a bounded pool. Finished chunks are
+ * k-way merged by timestamp, in chunk order, into one SessionEngine. The engine keeps its open
+ * sessions from one merged batch to the next, so a session that spans a chunk boundary is stitched
+ * into one row instead of being cut in two. At most 2 x parallelism chunks are held in memory.
+ */
+public final class ChunkedBackfill {
+
+    /**
+     * Loads the decoded events of [start, end); called concurrently for different chunks
+     */
+    public interface ChunkLoader {
+        List<UsageEvent> load(long start, long end) throws Exception;
+    }
+
+    public interface ProgressListener {
+        void onProgress(int chunksDone, int chunkCount, long eventsMerged);
+    }
+
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final long chunkMs;
+
+    public ChunkedBackfill(ExecutorService executor, int parallelism, long chunkMs) {
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+        this.chunkMs = chunkMs;
+    }
+
+    public int getChunkCount(long start, long end) {
+        return (int) ((end - start + chunkMs - 1) / chunkMs);
+    }
+
+    /**
+     * Backfill [start, end) into the engine; returns the number of merged events
+     * Pending chunks are cancelled when a chunk fails or the calling thread is interrupted (which
+     * stops the run with an InterruptedException between merged batches).
+     */
+    public long run(long start, long end, final ChunkLoader loader, SessionEngine engine,
+                    ProgressListener progress) throws Exception {
+        int chunkCount = getChunkCount(start, end);
+        List<Future<List<UsageEvent>>> chunks = new ArrayList<>(chunkCount);
+        int window = 2 * parallelism;
+        long merged = 0;
+        int next = 0;
+
+        try {
+            while (next < chunkCount) {
+                if (Thread.interrupted()) throw new InterruptedException("Backfill cancelled");
+
+                // Keep the pool busy, with a bounded number of chunks held in memory
+                while (chunks.size() < chunkCount && chunks.size() - next < window) {
+                    final long chunkStart = start + chunks.size() * chunkMs;
+                    final long chunkEnd = Math.min(end, chunkStart + chunkMs);
+                    chunks.add(executor.submit(new Callable<List<UsageEvent>>() {
+                        @Override
+                        public List<UsageEvent> call() throws Exception {
+                            return loader.load(chunkStart, chunkEnd);
+                        }
+                    }));
+                }
+
+                // Wait for the oldest chunk, then take every consecutive chunk that is already done
+                List<List<UsageEvent>> runs = new ArrayList<>();
+                runs.add(get(chunks.get(next)));
+                chunks.set(next++, null);
+                while (next < chunks.size() && chunks.get(next).isDone()) {
+                    runs.add(get(chunks.get(next)));
+                    chunks.set(next++, null);
+                }
+
+                List<UsageEvent> batch = merge(runs);
+                engine.processEvents(batch);
+                merged += batch.size();
+                if (progress != null) {
+                    progress.onProgress(next, chunkCount, merged);
+                }
+            }
+        } finally {
+            for (int i = next; i < chunks.size(); i++) {
+                chunks.get(i).cancel(true);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * K-way merge of runs that are each sorted by timestamp (ties keep run order)
+     */
+    public static List<UsageEvent> merge(List<List<UsageEvent>> runs) {
+        int total = 0;
+        for (List<UsageEvent> run : runs) {
+            total += run.size();
+        }
+        List<UsageEvent> out = new ArrayList<>(total);
+        if (runs.size() == 1) {
+            out.addAll(runs.get(0));
+            return out;
+        }
+
+        PriorityQueue<Cursor> heap = new PriorityQueue<>(Math.max(1, runs.size()));
+        for (int i = 0; i < runs.size(); i++) {
+            if (!runs.get(i).isEmpty()) {
+                heap.add(new Cursor(runs.get(i), i));
+            }
+        }
+        while (!heap.isEmpty()) {
+            Cursor cursor = heap.poll();
+            out.add(cursor.current());
+            if (cursor.advance()) {
+                heap.add(cursor);
+            }
+        }
+        return out;
+    }
+
+    private static List<UsageEvent> get(Future<List<UsageEvent>> chunk) throws Exception {
+        try {
+            return chunk.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    private static final class Cursor implements Comparable<Cursor> {
+        private final List<UsageEvent> run;
+        private final int order;
+        private int position;
+
+        Cursor(List<UsageEvent> run, int order) {
+            this.run = run;
+            this.order = order;
+        }
+
+        UsageEvent current() {
+            return run.get(position);
+        }
+
+        boolean advance() {
+            return ++position < run.size();
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            int byTime = Long.compare(current().timestamp, other.current().timestamp);
+            return byTime != 0 ? byTime : Integer.compare(order, other.order);
+        }
+    }
+}
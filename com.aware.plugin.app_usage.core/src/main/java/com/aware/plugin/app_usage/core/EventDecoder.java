@@ -0,0 +1,138 @@
+package com.aware.plugin.app_usage.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decode step of the ingestion path: event type relevance, app list filter and app info lookup
+ * App info is resolved once per package until the next configure() instead of once per event.
+ * Not thread-safe; one periodic check uses it at a time. Drop reasons and lookups are counted in
+ * plain fields and handed to PipelineMetrics once per check (publishMetrics), not per event.
+ */
+public final class EventDecoder {
+
+    /**
+     * Looks up installed app info (PackageManager on Android)
+     */
+    public interface AppResolver {
+        /**
+         * App info of an installed package, or null when the package is not installed
+         */
+        AppDescriptor resolve(String packageName);
+    }
+
+    /**
+     * Label and system flag of an installed app
+     */
+    public static final class AppDescriptor {
+        public final String appName;
+        public final boolean isSystemApp;
+
+        public AppDescriptor(String appName, boolean isSystemApp) {
+            this.appName = appName;
+            this.isSystemApp = isSystemApp;
+        }
+    }
+
+    private static final AppDescriptor NOT_INSTALLED = new AppDescriptor(null, false);
+
+    private final AppResolver resolver;
+    private final Map<String, AppDescriptor> resolved = new HashMap<>();
+    private AppFilterMatcher filter = AppFilterMatcher.EMPTY;
+    private boolean isWhitelistMode;
+
+    // Counted since the last publishMetrics()
+    private long irrelevantEvents;
+    private long excludedEvents;
+    private long notInstalledEvents;
+    private long packageLookups;
+
+    public EventDecoder(AppResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * Apply the filter mode and compiled app list, and forget resolved app info
+     */
+    public void configure(AppFilterMatcher filter, boolean whitelistMode) {
+        this.filter = filter;
+        this.isWhitelistMode = whitelistMode;
+        resolved.clear();
+    }
+
+    /**
+     * Forget the resolved app info of a package that was installed, updated, changed or removed,
+     * so its next event sees the current label and install state
+     */
+    public void forget(String packageName) {
+        resolved.remove(packageName);
+    }
+
+    /**
+     * Add the drop and lookup counts since the previous call to the metrics, and reset them
+     */
+    public void publishMetrics(PipelineMetrics metrics) {
+        metrics.add(PipelineMetrics.Counter.EVENTS_IRRELEVANT, irrelevantEvents);
+        metrics.add(PipelineMetrics.Counter.EVENTS_EXCLUDED, excludedEvents);
+        metrics.add(PipelineMetrics.Counter.EVENTS_NOT_INSTALLED, notInstalledEvents);
+        metrics.add(PipelineMetrics.Counter.PACKAGE_LOOKUPS, packageLookups);
+        irrelevantEvents = 0;
+        excludedEvents = 0;
+        notInstalledEvents = 0;
+        packageLookups = 0;
+    }
+
+    /**
+     * Whether the event type matters for session tracking
+     */
+    public static boolean isRelevantEventType(int eventType) {
+        return eventType == EventTypes.MOVE_TO_FOREGROUND ||
+                eventType == EventTypes.MOVE_TO_BACKGROUND ||
+                eventType == EventTypes.ACTIVITY_STOPPED ||
+                eventType == EventTypes.SCREEN_INTERACTIVE ||
+                eventType == EventTypes.SCREEN_NON_INTERACTIVE;
+    }
+
+    /**
+     * Whether the package is excluded by the app list (blacklist: listed, whitelist: not listed)
+     */
+    public boolean isExcluded(String packageName) {
+        return isWhitelistMode != filter.matches(packageName);
+    }
+
+    /**
+     * Full decode: returns null when the event is irrelevant, excluded, or its package is not installed
+     */
+    public UsageEvent decode(String packageName, int eventType, long timestamp) {
+        if (packageName == null || !isRelevantEventType(eventType)) {
+            irrelevantEvents++;
+            return null;
+        }
+        if (isExcluded(packageName)) {
+            excludedEvents++;
+            return null;
+        }
+        return createEvent(packageName, eventType, timestamp);
+    }
+
+    /**
+     * Attach app info to an event that already passed the relevance and filter checks
+     * Returns null when the package is not installed
+     */
+    public UsageEvent createEvent(String packageName, int eventType, long timestamp) {
+        AppDescriptor app = resolved.get(packageName);
+        if (app == null) {
+            app = resolver.resolve(packageName);
+            packageLookups++;
+            if (app == null) {
+                app = NOT_INSTALLED;
+            }
+            resolved.put(packageName, app);
+        }
+        if (app == NOT_INSTALLED) {
+            notInstalledEvents++;
+            return null;
+        }
+        return new UsageEvent(packageName, app.appName, app.isSystemApp, eventType, timestamp);
+    }
+}
@@ -0,0 +1,22 @@
+package com.aware.plugin.app_usage.core;
+
+/**
+ * UsageEvents.Event type codes used by the session engine
+ * Mirrors android.app.usage.UsageEvents.Event so the engine runs without the Android SDK
+ */
+public final class EventTypes {
+
+    public static final int MOVE_TO_FOREGROUND = 1;
+    public static final int MOVE_TO_BACKGROUND = 2;
+
+    // Same codes as MOVE_TO_FOREGROUND/BACKGROUND since API 29
+    public static final int ACTIVITY_RESUMED = 1;
+    public static final int ACTIVITY_PAUSED = 2;
+    public static final int ACTIVITY_STOPPED = 23;
+
+    public static final int SCREEN_INTERACTIVE = 15;
+    public static final int SCREEN_NON_INTERACTIVE = 16;
+
+    private EventTypes() {
+    }
+}
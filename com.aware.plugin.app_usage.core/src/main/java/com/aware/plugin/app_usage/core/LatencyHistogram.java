@@ -0,0 +1,117 @@
+package com.aware.plugin.app_usage.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with fixed millisecond buckets
+ * Recording is a couple of atomic increments and never allocates; percentiles are read from a
+ * snapshot and are bucket upper bounds (the last, open bucket reports the observed maximum).
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Inclusive upper bounds of the buckets in milliseconds; one more bucket collects larger values
+     */
+    public static final long[] BOUNDS_MS = {
+            1, 2, 5, 10, 20, 50, 100, 200, 500,
+            1000, 2000, 5000, 10000, 30000, 60000, 120000, 300000,
+            600000, 1800000, 3600000, 7200000, 21600000, 86400000 // up to a day, for upload delays
+    };
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_MS.length + 1);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record one value in milliseconds (negative values count as 0)
+     */
+    public void record(long valueMs) {
+        if (valueMs < 0) valueMs = 0;
+        buckets.incrementAndGet(bucketOf(valueMs));
+        sum.addAndGet(valueMs);
+        long current;
+        while (valueMs > (current = max.get())) {
+            if (max.compareAndSet(current, valueMs)) break;
+        }
+    }
+
+    /**
+     * Copy the current values and start over
+     * Values recorded concurrently land either in this snapshot or in the next one.
+     */
+    public Snapshot snapshotAndReset() {
+        long[] counts = new long[buckets.length()];
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.getAndSet(i, 0);
+            count += counts[i];
+        }
+        return new Snapshot(counts, count, sum.getAndSet(0), max.getAndSet(0));
+    }
+
+    private static int bucketOf(long valueMs) {
+        for (int i = 0; i < BOUNDS_MS.length; i++) {
+            if (valueMs <= BOUNDS_MS[i]) return i;
+        }
+        return BOUNDS_MS.length;
+    }
+
+    /**
+     * Immutable histogram values of one interval
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        public final long count;
+        public final long sumMs;
+        public final long maxMs;
+
+        Snapshot(long[] counts, long count, long sumMs, long maxMs) {
+            this.counts = counts;
+            this.count = count;
+            this.sumMs = sumMs;
+            this.maxMs = maxMs;
+        }
+
+        /**
+         * Upper bound of the bucket holding the given quantile (0..1), or 0 when empty
+         */
+        public long percentile(double quantile) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i < BOUNDS_MS.length ? Math.min(BOUNDS_MS[i], maxMs) : maxMs;
+                }
+            }
+            return maxMs;
+        }
+
+        /**
+         * Number of values in a bucket (index into BOUNDS_MS, BOUNDS_MS.length for the open bucket)
+         */
+        public long getCount(int bucket) {
+            return counts[bucket];
+        }
+
+        /**
+         * {"count":..,"p50":..,"p95":..,"p99":..,"max":..,"sum":..,"buckets":[..]}
+         */
+        public void appendJson(StringBuilder out) {
+            out.append("{\"count\":").append(count)
+                    .append(",\"p50\":").append(percentile(0.50))
+                    .append(",\"p95\":").append(percentile(0.95))
+                    .append(",\"p99\":").append(percentile(0.99))
+                    .append(",\"max\":").append(maxMs)
+                    .append(",\"sum\":").append(sumMs)
+                    .append(",\"buckets\":[");
+            for (int i = 0; i < counts.length; i++) {
+                if (i > 0) out.append(',');
+                out.append(counts[i]);
+            }
+            out.append("]}");
+        }
+    }
+}
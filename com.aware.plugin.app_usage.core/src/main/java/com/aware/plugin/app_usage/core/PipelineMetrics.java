@@ -0,0 +1,155 @@
+package com.aware.plugin.app_usage.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and latency histograms of the ingestion pipeline
+ * Everything is lock-free so the periodic check, screen broadcasts and provider calls can record
+ * from any thread. Snapshots cover the interval since the previous snapshot (values are reset),
+ * so snapshot rows can be summed on the server.
+ */
+public final class PipelineMetrics {
+
+    public enum Counter {
+        CHECKS,
+        EVENTS_READ,
+        EVENTS_DECODED,
+        EVENTS_IRRELEVANT,
+        EVENTS_EXCLUDED,
+        EVENTS_NOT_INSTALLED,
+        PACKAGE_LOOKUPS,
+        SESSIONS_SAVED,
+        SESSIONS_TOO_SHORT,
+        INSERT_FAILURES,
+        // Opened while every journal slot was in use; lost if the process dies before they close
+        SESSIONS_NOT_JOURNALED
+    }
+
+    public enum Latency {
+        CHECK("check"),
+        QUERY_EVENTS("query_events"),
+        INSERT("insert"),
+        ALARM_DRIFT("alarm_drift"),
+        // Session end event -> row committed by the Provider
+        COMMIT_DELAY("commit_delay"),
+        // Session end event -> row uploaded by the sync adapter
+        UPLOAD_DELAY("upload_delay"),
+        // Startup warm-up phases, one sample per plugin start
+        WARMUP_DATABASE("warmup_database"),
+        WARMUP_STATEMENTS("warmup_statements"),
+        WARMUP_FILTER("warmup_filter"),
+        WARMUP_PACKAGES("warmup_packages");
+
+        /**
+         * Key of the histogram in the snapshot JSON
+         */
+        public final String key;
+
+        Latency(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final PipelineMetrics GLOBAL = new PipelineMetrics();
+
+    private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Latency.values().length];
+    private final AtomicLong intervalStart = new AtomicLong(System.currentTimeMillis());
+
+    public PipelineMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Process-wide instance shared by the plugin service and the provider
+     */
+    public static PipelineMetrics global() {
+        return GLOBAL;
+    }
+
+    public void increment(Counter counter) {
+        counters.incrementAndGet(counter.ordinal());
+    }
+
+    public void add(Counter counter, long delta) {
+        if (delta != 0) {
+            counters.addAndGet(counter.ordinal(), delta);
+        }
+    }
+
+    public long get(Counter counter) {
+        return counters.get(counter.ordinal());
+    }
+
+    public void record(Latency latency, long valueMs) {
+        histograms[latency.ordinal()].record(valueMs);
+    }
+
+    /**
+     * Record the time elapsed since a System.nanoTime() reading
+     */
+    public void recordSince(Latency latency, long startNanos) {
+        record(latency, (System.nanoTime() - startNanos) / 1000000L);
+    }
+
+    /**
+     * Copy and reset every counter and histogram; the snapshot covers [previous snapshot, now]
+     */
+    public Snapshot snapshotAndReset(long now) {
+        long[] values = new long[counters.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = counters.getAndSet(i, 0);
+        }
+        LatencyHistogram.Snapshot[] latencies = new LatencyHistogram.Snapshot[histograms.length];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = histograms[i].snapshotAndReset();
+        }
+        return new Snapshot(intervalStart.getAndSet(now), now, values, latencies);
+    }
+
+    /**
+     * Metrics of one interval
+     */
+    public static final class Snapshot {
+        public final long startTime;
+        public final long endTime;
+        private final long[] counters;
+        private final LatencyHistogram.Snapshot[] latencies;
+
+        Snapshot(long startTime, long endTime, long[] counters, LatencyHistogram.Snapshot[] latencies) {
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.counters = counters;
+            this.latencies = latencies;
+        }
+
+        public long get(Counter counter) {
+            return counters[counter.ordinal()];
+        }
+
+        public LatencyHistogram.Snapshot get(Latency latency) {
+            return latencies[latency.ordinal()];
+        }
+
+        /**
+         * Every histogram keyed by Latency.key, plus the shared bucket bounds
+         */
+        public String latenciesToJson() {
+            StringBuilder out = new StringBuilder(512);
+            out.append("{\"bounds_ms\":[");
+            for (int i = 0; i < LatencyHistogram.BOUNDS_MS.length; i++) {
+                if (i > 0) out.append(',');
+                out.append(LatencyHistogram.BOUNDS_MS[i]);
+            }
+            out.append(']');
+            for (Latency latency : Latency.values()) {
+                out.append(",\"").append(latency.key).append("\":");
+                latencies[latency.ordinal()].appendJson(out);
+            }
+            return out.append('}').toString();
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.aware.plugin.app_usage.core;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Append-only journal of raw usage events, split into rotated segment files
+ * Keeps the events after the session engine has consumed them, so sessions can be recomputed with
+ * other rules (minimum duration, PiP handling) after UsageStats has dropped them.
+ *
+ * Segment (events-NNNNNNNN.seg): magic "AURE", version byte, then records:
+ *   0xFF, varint id, varint length, UTF-8 package name   package dictionary entry (per segment)
+ *   event type byte (< 0xFF), varint package id, zigzag varint timestamp delta   one event
+ * A segment is self-contained (own dictionary, first delta from 0). A process start continues the
+ * newest segment after cutting off a record torn by a crash, so restarts do not leave small segments
+ * behind and the retained history stays close to maxSegments full segments.
+ */
+public final class RawEventLog implements Closeable {
+
+    public static final long DEFAULT_SEGMENT_BYTES = 1024 * 1024;
+    public static final int DEFAULT_MAX_SEGMENTS = 64;
+
+    private static final byte[] MAGIC = {'A', 'U', 'R', 'E'};
+    private static final int VERSION = 1;
+    private static final int DICTIONARY_TAG = 0xFF;
+    private static final String PREFIX = "events-";
+    private static final String SUFFIX = ".seg";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final FilenameFilter SEGMENTS = new FilenameFilter() {
+        @Override
+        public boolean accept(File dir, String name) {
+            return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+        }
+    };
+
+    /**
+     * Receives journaled events in the order they were written
+     */
+    public interface Visitor {
+        void onEvent(String packageName, int eventType, long timestamp);
+    }
+
+    private final File directory;
+    private final long maxSegmentBytes;
+    private final int maxSegments;
+
+    private final byte[] buffer = new byte[64 * 1024];
+    private int buffered;
+
+    private OutputStream out;
+    private long segmentBytes;
+    private int segmentNumber;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private long lastTimestamp;
+
+    private RawEventLog(File directory, long maxSegmentBytes, int maxSegments) {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxSegments = maxSegments;
+    }
+
+    public static RawEventLog open(File directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_MAX_SEGMENTS);
+    }
+
+    /**
+     * Continue the newest segment of the directory while it has room, else start a new one; the oldest
+     * segments are deleted beyond maxSegments
+     */
+    public static RawEventLog open(File directory, long maxSegmentBytes, int maxSegments) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        RawEventLog log = new RawEventLog(directory, maxSegmentBytes, maxSegments);
+        File[] segments = listSegments(directory);
+        if (segments.length > 0) {
+            File newest = segments[segments.length - 1];
+            log.segmentNumber = segmentNumber(newest);
+            if (newest.length() < maxSegmentBytes && log.resumeSegment(newest)) {
+                return log;
+            }
+        }
+        log.startSegment();
+        return log;
+    }
+
+    /**
+     * Append one event; not thread-safe (the periodic check is the only writer)
+     */
+    public void append(String packageName, int eventType, long timestamp) throws IOException {
+        if (packageName == null || eventType < 0 || eventType >= DICTIONARY_TAG) return;
+        if (segmentBytes + buffered >= maxSegmentBytes) {
+            flush();
+            startSegment();
+        }
+        ensureSpace(1 + 5 + 10 + 5 + 4 * packageName.length());
+
+        Integer id = dictionary.get(packageName);
+        if (id == null) {
+            id = dictionary.size();
+            dictionary.put(packageName, id);
+            byte[] name = packageName.getBytes(UTF_8);
+            buffer[buffered++] = (byte) DICTIONARY_TAG;
+            putVarint(id);
+            putVarint(name.length);
+            System.arraycopy(name, 0, buffer, buffered, name.length);
+            buffered += name.length;
+        }
+
+        long delta = timestamp - lastTimestamp;
+        lastTimestamp = timestamp;
+        buffer[buffered++] = (byte) eventType;
+        putVarint(id);
+        putVarint((delta << 1) ^ (delta >> 63)); // zigzag: events of separate checks may overlap
+    }
+
+    /**
+     * Write buffered events to the current segment (once per check)
+     */
+    public void flush() throws IOException {
+        if (buffered == 0) return;
+        out.write(buffer, 0, buffered);
+        out.flush();
+        segmentBytes += buffered;
+        buffered = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Read every segment of a journal directory, oldest first; returns the number of events
+     */
+    public static long read(File directory, Visitor visitor) throws IOException {
+        long events = 0;
+        for (File segment : listSegments(directory)) {
+            events += readSegment(segment, visitor);
+        }
+        return events;
+    }
+
+    /**
+     * Read one segment; a record cut short at the end (crash while writing) is ignored
+     */
+    public static long readSegment(File segment, Visitor visitor) throws IOException {
+        byte[] data = readFile(segment);
+        if (!hasHeader(data)) {
+            throw new IOException("Not a raw event segment: " + segment);
+        }
+        if (data[MAGIC.length] != VERSION) {
+            throw new IOException("Unsupported segment version " + data[MAGIC.length] + ": " + segment);
+        }
+        return new Decoder(data).run(visitor);
+    }
+
+    /**
+     * Reopen a segment for appending: its dictionary and last timestamp are rebuilt and a torn last
+     * record is cut off. False when the file is not a current-version segment (a new one is started).
+     */
+    private boolean resumeSegment(File file) throws IOException {
+        byte[] data = readFile(file);
+        if (!hasHeader(data) || data[MAGIC.length] != VERSION) return false;
+
+        Decoder decoder = new Decoder(data);
+        decoder.run(null);
+        if (decoder.end < data.length) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(decoder.end);
+            }
+        }
+        out = new FileOutputStream(file, true);
+        segmentBytes = decoder.end;
+        dictionary.clear();
+        for (int i = 0; i < decoder.packages.size(); i++) {
+            dictionary.put(decoder.packages.get(i), i);
+        }
+        lastTimestamp = decoder.timestamp;
+        deleteOldSegments();
+        return true;
+    }
+
+    private void startSegment() throws IOException {
+        if (out != null) {
+            out.close();
+        }
+        segmentNumber++;
+        File file = new File(directory, String.format(Locale.ROOT, "%s%08d%s", PREFIX, segmentNumber, SUFFIX));
+        out = new FileOutputStream(file);
+        out.write(MAGIC);
+        out.write(VERSION);
+        segmentBytes = MAGIC.length + 1;
+        dictionary.clear();
+        lastTimestamp = 0;
+        deleteOldSegments();
+    }
+
+    private void deleteOldSegments() {
+        File[] segments = listSegments(directory);
+        for (int i = 0; i < segments.length - maxSegments; i++) {
+            if (!segments[i].delete()) break;
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        try (InputStream in = new FileInputStream(file)) {
+            new DataInputStream(in).readFully(data);
+        }
+        return data;
+    }
+
+    private static boolean hasHeader(byte[] data) {
+        return data.length >= MAGIC.length + 1 && Arrays.equals(Arrays.copyOf(data, MAGIC.length), MAGIC);
+    }
+
+    private static File[] listSegments(File directory) {
+        File[] segments = directory.listFiles(SEGMENTS);
+        if (segments == null) return new File[0];
+        Arrays.sort(segments); // zero-padded numbers sort by name
+        return segments;
+    }
+
+    private static int segmentNumber(File segment) {
+        String name = segment.getName();
+        try {
+            return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void ensureSpace(int bytes) throws IOException {
+        if (buffered + bytes > buffer.length) {
+            flush();
+        }
+    }
+
+    private void putVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[buffered++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[buffered++] = (byte) value;
+    }
+
+    /**
+     * Decodes the records of a segment up to the first incomplete one (a tail cut short by a crash)
+     */
+    private static final class Decoder {
+        private final byte[] data;
+        int position = MAGIC.length + 1;
+        int end = MAGIC.length + 1; // offset after the last complete record
+        final List<String> packages = new ArrayList<>();
+        long timestamp;
+
+        Decoder(byte[] data) {
+            this.data = data;
+        }
+
+        long run(Visitor visitor) {
+            long events = 0;
+            while (position < data.length) {
+                int tag;
+                int id;
+                long value;
+                try {
+                    tag = data[position++] & 0xFF;
+                    id = (int) varint();
+                    value = varint(); // name length or timestamp delta
+                } catch (ArrayIndexOutOfBoundsException e) {
+                    break; // truncated tail
+                }
+                if (tag == DICTIONARY_TAG) {
+                    if (id != packages.size() || position + value > data.length) break;
+                    packages.add(new String(data, position, (int) value, UTF_8));
+                    position += (int) value;
+                } else {
+                    if (id >= packages.size()) break;
+                    timestamp += (value >>> 1) ^ -(value & 1);
+                    if (visitor != null) visitor.onEvent(packages.get(id), tag, timestamp);
+                    events++;
+                }
+                end = position;
+            }
+            return events;
+        }
+
+        long varint() {
+            long value = 0;
+            int shift = 0;
+            while (true) {
+                byte b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return value;
+                shift += 7;
+            }
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.aware.plugin.app_usage.core;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Platform-free session state machine
+ * - MOVE_TO_FOREGROUND opens a session for the package (several can be open: PIP, multi-window)
+ * - MOVE_TO_BACKGROUND closes it immediately; sessions are never merged
+ * - SCREEN_NON_INTERACTIVE closes every open session and ignores foreground events until SCREEN_INTERACTIVE
+ * - Sessions shorter than the minimum duration are dropped (counted in PipelineMetrics when given)
+ * Session opens/closes and screen changes are recorded in a TraceBuffer when given.
+ * With a SessionJournal, open sessions, the screen state and the newest processed event time are
+ * journaled, so after a process restart restoreFromJournal() brings the sessions and the screen state
+ * back and events that were already processed are skipped when the stream is queried again. Sessions
+ * opened while every journal slot is in use are counted as SESSIONS_NOT_JOURNALED.
+ * Closed sessions are handed to a SessionSink. All methods are synchronized, so events from the
+ * periodic check and screen broadcasts can arrive on different threads.
+ */
+public final class SessionEngine {
+
+    public static final long DEFAULT_MIN_DURATION_MS = 1000;
+
+    private static final Comparator<UsageEvent> BY_TIMESTAMP = new Comparator<UsageEvent>() {
+        @Override
+        public int compare(UsageEvent a, UsageEvent b) {
+            return Long.compare(a.timestamp, b.timestamp);
+        }
+    };
+
+    private final SessionSink sink;
+    private final long minDurationMs;
+    private final PipelineMetrics metrics;
+    private final TraceBuffer trace;
+    private final SessionJournal journal;
+
+    // Open sessions: package name -> session
+    private final Map<String, Session> activeSessions = new HashMap<>();
+    private boolean isScreenOn = true;
+    // Events at or before this time were processed before a restart
+    private long resumeAfter = Long.MIN_VALUE;
+
+    public SessionEngine(SessionSink sink) {
+        this(sink, DEFAULT_MIN_DURATION_MS);
+    }
+
+    public SessionEngine(SessionSink sink, long minDurationMs) {
+        this(sink, minDurationMs, null);
+    }
+
+    public SessionEngine(SessionSink sink, long minDurationMs, PipelineMetrics metrics) {
+        this(sink, minDurationMs, metrics, null);
+    }
+
+    public SessionEngine(SessionSink sink, long minDurationMs, PipelineMetrics metrics, TraceBuffer trace) {
+        this(sink, minDurationMs, metrics, trace, null);
+    }
+
+    public SessionEngine(SessionSink sink, long minDurationMs, PipelineMetrics metrics, TraceBuffer trace,
+                         SessionJournal journal) {
+        this.sink = sink;
+        this.minDurationMs = minDurationMs;
+        this.metrics = metrics;
+        this.trace = trace;
+        this.journal = journal;
+    }
+
+    /**
+     * Reopen the sessions left in the journal by a previous process, restore its screen state and skip
+     * events up to its watermark
+     * Returns the number of restored sessions.
+     */
+    public synchronized int restoreFromJournal() {
+        if (journal == null) return 0;
+        isScreenOn = journal.isScreenOn();
+        int restored = 0;
+        for (SessionJournal.Entry entry : journal.entries()) {
+            if (activeSessions.containsKey(entry.packageName)) {
+                journal.remove(entry.slot);
+                continue;
+            }
+            Session session = new Session(entry.packageName, entry.appName, entry.isSystemApp, entry.startTime);
+            session.journalSlot = entry.slot;
+            activeSessions.put(entry.packageName, session);
+            restored++;
+        }
+        long watermark = journal.getWatermark();
+        if (watermark > 0) {
+            resumeAfter = watermark;
+        }
+        return restored;
+    }
+
+    /**
+     * Newest event time processed before the last restart (0 when not restored)
+     */
+    public synchronized long getResumeTime() {
+        return resumeAfter == Long.MIN_VALUE ? 0 : resumeAfter;
+    }
+
+    /**
+     * Sort a batch of events by timestamp (in place) and process them in order
+     */
+    public synchronized void processEvents(List<? extends UsageEvent> events) {
+        if (events.isEmpty()) return;
+        Collections.sort(events, BY_TIMESTAMP);
+        for (int i = 0, n = events.size(); i < n; i++) {
+            processEvent(events.get(i));
+        }
+        if (journal != null) {
+            journal.setWatermark(Math.max(resumeAfter, events.get(events.size() - 1).timestamp));
+        }
+    }
+
+    /**
+     * Process one event; events must arrive in timestamp order
+     */
+    public synchronized void processEvent(UsageEvent event) {
+        // Already processed before a restart
+        if (event.timestamp <= resumeAfter) return;
+
+        switch (event.eventType) {
+            case EventTypes.SCREEN_NON_INTERACTIVE:
+                screenOff(event.timestamp);
+                break;
+            case EventTypes.SCREEN_INTERACTIVE:
+                screenOn();
+                break;
+            case EventTypes.MOVE_TO_FOREGROUND:
+                appVisible(event);
+                break;
+            case EventTypes.MOVE_TO_BACKGROUND:
+                appHidden(event);
+                break;
+            default:
+                // Other event types do not affect visibility
+                break;
+        }
+    }
+
+    /**
+     * Screen turned off at the given time: close and clear every open session
+     */
+    public synchronized void screenOff(long time) {
+        isScreenOn = false;
+        if (journal != null) journal.setScreenOn(false);
+        if (trace != null) trace.record(TraceBuffer.STAGE_SCREEN_OFF, 0, null, time, activeSessions.size());
+        closeAll(time);
+    }
+
+    public synchronized void screenOn() {
+        isScreenOn = true;
+        if (journal != null) journal.setScreenOn(true);
+        if (trace != null) trace.record(TraceBuffer.STAGE_SCREEN_ON, 0, null, 0, 0);
+    }
+
+    /**
+     * Close every open session at the given time (e.g. when the plugin stops)
+     */
+    public synchronized void closeAll(long endTime) {
+        Iterator<Session> iterator = activeSessions.values().iterator();
+        while (iterator.hasNext()) {
+            close(iterator.next(), endTime);
+            iterator.remove();
+        }
+    }
+
+    public synchronized boolean isScreenOn() {
+        return isScreenOn;
+    }
+
+    public synchronized int getActiveSessionCount() {
+        return activeSessions.size();
+    }
+
+    /**
+     * Open sessions that have no journal slot (all slots were in use when they opened)
+     */
+    public synchronized int getUnjournaledSessionCount() {
+        if (journal == null) return 0;
+        int count = 0;
+        for (Session session : activeSessions.values()) {
+            if (session.journalSlot < 0) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Start times of open sessions keyed by package name
+     */
+    public synchronized Map<String, Long> getActiveSessionStartTimes() {
+        Map<String, Long> startTimes = new HashMap<>();
+        for (Session session : activeSessions.values()) {
+            startTimes.put(session.packageName, session.startTime);
+        }
+        return startTimes;
+    }
+
+    private void appVisible(UsageEvent event) {
+        // No new sessions while the screen is off
+        if (!isScreenOn) return;
+
+        Session session = activeSessions.get(event.packageName);
+        if (session != null) {
+            session.lastActivityTime = event.timestamp;
+        } else {
+            session = new Session(event.packageName, event.appName, event.isSystemApp, event.timestamp);
+            if (journal != null) {
+                session.journalSlot = journal.add(event.packageName, event.appName, event.isSystemApp, event.timestamp);
+                if (session.journalSlot < 0 && metrics != null) {
+                    metrics.increment(PipelineMetrics.Counter.SESSIONS_NOT_JOURNALED);
+                }
+            }
+            activeSessions.put(event.packageName, session);
+            if (trace != null) {
+                trace.record(TraceBuffer.STAGE_SESSION_OPEN, event.eventType, event.packageName, event.timestamp, 0);
+            }
+        }
+    }
+
+    private void appHidden(UsageEvent event) {
+        Session session = activeSessions.remove(event.packageName);
+        if (session != null) {
+            close(session, event.timestamp);
+        }
+    }
+
+    private void close(Session session, long endTime) {
+        if (journal != null) journal.remove(session.journalSlot);
+        long duration = endTime - session.startTime;
+        if (duration < minDurationMs) {
+            if (metrics != null) metrics.increment(PipelineMetrics.Counter.SESSIONS_TOO_SHORT);
+            if (trace != null) {
+                trace.record(TraceBuffer.STAGE_SESSION_DROPPED, 0, session.packageName, endTime, duration);
+            }
+            return;
+        }
+        if (trace != null) {
+            trace.record(TraceBuffer.STAGE_SESSION_CLOSE, 0, session.packageName, endTime, duration);
+        }
+        sink.onSession(session.packageName, session.appName, session.isSystemApp, session.startTime, endTime);
+    }
+
+    /**
+     * Open session
+     */
+    private static final class Session {
+        final String packageName;
+        final String appName;
+        final boolean isSystemApp;
+        final long startTime;
+        long lastActivityTime;
+        int journalSlot = -1;
+
+        Session(String packageName, String appName, boolean isSystemApp, long startTime) {
+            this.packageName = packageName;
+            this.appName = appName;
+            this.isSystemApp = isSystemApp;
+            this.startTime = startTime;
+            this.lastActivityTime = startTime;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.aware.plugin.app_usage.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Crash-safe journal of open sessions in a small fixed-layout memory-mapped file
+ * Writes go to the page cache, so they survive the process being killed. Opening a session writes
+ * one slot with its state word last; closing it only clears the state word; each processed batch
+ * updates the 8-byte watermark (newest event already handed to the engine), and screen changes the
+ * screen-off word, so a restart while the screen is off does not open sessions before it turns on.
+ *
+ * Layout (big endian):
+ *   header: magic int, version int, slot count int, screen off int, watermark long
+ *   slots:  state int, start time long, system flag byte, package length byte, app name length byte,
+ *           reserved byte, package bytes (MAX_NAME_BYTES), app name bytes (MAX_NAME_BYTES)
+ */
+public final class SessionJournal implements Closeable {
+
+    private static final int MAGIC = 0x41555353; // "AUSS"
+    private static final int VERSION = 1;
+
+    public static final int SLOT_COUNT = 16;
+    public static final int MAX_NAME_BYTES = 120;
+
+    private static final int HEADER_SIZE = 24;
+    private static final int SCREEN_OFF_OFFSET = 12; // 0 (also in a new journal): screen on
+    private static final int WATERMARK_OFFSET = 16;
+    private static final int SLOT_SIZE = 4 + 8 + 4 + 2 * MAX_NAME_BYTES;
+    private static final int FILE_SIZE = HEADER_SIZE + SLOT_COUNT * SLOT_SIZE;
+
+    private static final int FREE = 0;
+    private static final int OPEN = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Open session read back from the journal
+     */
+    public static final class Entry {
+        public final int slot;
+        public final String packageName;
+        public final String appName;
+        public final boolean isSystemApp;
+        public final long startTime;
+
+        Entry(int slot, String packageName, String appName, boolean isSystemApp, long startTime) {
+            this.slot = slot;
+            this.packageName = packageName;
+            this.appName = appName;
+            this.isSystemApp = isSystemApp;
+            this.startTime = startTime;
+        }
+    }
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final boolean[] used = new boolean[SLOT_COUNT];
+
+    private SessionJournal(RandomAccessFile file, MappedByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Map the journal file, creating or resetting it when it is missing or has another layout
+     */
+    public static SessionJournal open(File path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        try {
+            boolean valid = file.length() == FILE_SIZE;
+            file.setLength(FILE_SIZE);
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+            SessionJournal journal = new SessionJournal(file, buffer);
+            if (!valid || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || buffer.getInt(8) != SLOT_COUNT) {
+                journal.reset();
+            }
+            for (int slot = 0; slot < SLOT_COUNT; slot++) {
+                journal.used[slot] = buffer.getInt(slotOffset(slot)) == OPEN;
+            }
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Journal an opened session; returns its slot, or -1 when it cannot be journaled
+     * (all slots used, or a name longer than MAX_NAME_BYTES)
+     */
+    public synchronized int add(String packageName, String appName, boolean isSystemApp, long startTime) {
+        byte[] packageBytes = packageName.getBytes(UTF_8);
+        byte[] nameBytes = appName != null ? truncate(appName.getBytes(UTF_8)) : new byte[0];
+        if (packageBytes.length > MAX_NAME_BYTES) return -1;
+
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            if (used[slot]) continue;
+            int offset = slotOffset(slot);
+            buffer.putLong(offset + 4, startTime);
+            buffer.put(offset + 12, (byte) (isSystemApp ? 1 : 0));
+            buffer.put(offset + 13, (byte) packageBytes.length);
+            buffer.put(offset + 14, (byte) nameBytes.length);
+            putBytes(offset + 16, packageBytes);
+            putBytes(offset + 16 + MAX_NAME_BYTES, nameBytes);
+            buffer.putInt(offset, OPEN); // last: the slot only counts once it is complete
+            used[slot] = true;
+            return slot;
+        }
+        return -1;
+    }
+
+    /**
+     * Forget a closed session (one 4-byte write)
+     */
+    public synchronized void remove(int slot) {
+        if (slot < 0 || !used[slot]) return;
+        buffer.putInt(slotOffset(slot), FREE);
+        used[slot] = false;
+    }
+
+    /**
+     * Timestamp of the newest event already processed
+     */
+    public synchronized void setWatermark(long time) {
+        buffer.putLong(WATERMARK_OFFSET, time);
+    }
+
+    public synchronized long getWatermark() {
+        return buffer.getLong(WATERMARK_OFFSET);
+    }
+
+    /**
+     * Screen state last seen by the engine
+     */
+    public synchronized void setScreenOn(boolean screenOn) {
+        buffer.putInt(SCREEN_OFF_OFFSET, screenOn ? 0 : 1);
+    }
+
+    public synchronized boolean isScreenOn() {
+        return buffer.getInt(SCREEN_OFF_OFFSET) == 0;
+    }
+
+    /**
+     * Sessions that were open when the journal was last written
+     */
+    public synchronized List<Entry> entries() {
+        List<Entry> entries = new ArrayList<>();
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            if (!used[slot]) continue;
+            int offset = slotOffset(slot);
+            int packageLength = buffer.get(offset + 13) & 0xFF;
+            int nameLength = buffer.get(offset + 14) & 0xFF;
+            if (packageLength == 0 || packageLength > MAX_NAME_BYTES || nameLength > MAX_NAME_BYTES) {
+                remove(slot); // damaged slot
+                continue;
+            }
+            entries.add(new Entry(slot,
+                    getString(offset + 16, packageLength),
+                    getString(offset + 16 + MAX_NAME_BYTES, nameLength),
+                    buffer.get(offset + 12) != 0,
+                    buffer.getLong(offset + 4)));
+        }
+        return entries;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        file.close();
+    }
+
+    private void reset() {
+        for (int i = 0; i < FILE_SIZE; i += 4) {
+            buffer.putInt(i, 0);
+        }
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, SLOT_COUNT);
+        buffer.putInt(0, MAGIC);
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private void putBytes(int offset, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            buffer.put(offset + i, bytes[i]);
+        }
+    }
+
+    private String getString(int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Cut an app name to MAX_NAME_BYTES without splitting a UTF-8 sequence
+     */
+    private static byte[] truncate(byte[] bytes) {
+        if (bytes.length <= MAX_NAME_BYTES) return bytes;
+        int length = MAX_NAME_BYTES;
+        while (length > 0 && (bytes[length] & 0xC0) == 0x80) length--;
+        byte[] cut = new byte[length];
+        System.arraycopy(bytes, 0, cut, 0, length);
+        return cut;
+    }
+}
@@ -0,0 +1,9 @@
+package com.aware.plugin.app_usage.core;
+
+/**
+ * Receives sessions closed by the session engine (already past the minimum duration)
+ */
+public interface SessionSink {
+
+    void onSession(String packageName, String appName, boolean isSystemApp, long startTime, long endTime);
+}
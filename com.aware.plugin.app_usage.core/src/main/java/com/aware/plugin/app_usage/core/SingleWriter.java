@@ -0,0 +1,255 @@
+package com.aware.plugin.app_usage.core;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single writer thread for a store, fed by a lock-free multi-producer queue of write commands
+ * Producers push with one CAS and never block on the store. The writer drains everything queued,
+ * runs it in one transaction, and only completes the futures after the commit, so a caller that got
+ * a result knows its write is durable. A command that throws fails only its own future; a failed
+ * commit fails the whole batch.
+ */
+public final class SingleWriter<S> {
+
+    /**
+     * One write against the store, run on the writer thread inside a transaction
+     */
+    public interface Command<S, R> {
+        R execute(S store) throws Exception;
+    }
+
+    /**
+     * Transaction boundaries of the store (SQLiteDatabase begin/setSuccessful/end on Android)
+     */
+    public interface Transactions<S> {
+        void begin(S store);
+
+        void markSuccessful(S store);
+
+        void end(S store);
+    }
+
+    private final S store;
+    private final Transactions<S> transactions;
+    private final Thread thread;
+
+    // Treiber stack of pending writes, newest first; the writer takes all of it at once
+    private final AtomicReference<Node<S, ?>> pending = new AtomicReference<>();
+    // Swapped in by the writer when it stops, so no write can be queued after the last drain
+    private final Node<S, ?> closedMarker = new Node<>(null);
+    private volatile boolean closed;
+
+    private long batches;
+    private long commands;
+
+    public SingleWriter(S store, Transactions<S> transactions, String threadName) {
+        this.store = store;
+        this.transactions = transactions;
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, threadName);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queue a write; the future completes once its transaction is committed
+     *
+     * @throws IllegalStateException after close()
+     */
+    public <R> Future<R> submit(Command<S, R> command) {
+        Node<S, R> node = new Node<>(command);
+        Node<S, ?> head;
+        do {
+            if (closed) throw new IllegalStateException("Writer closed");
+            head = pending.get();
+            if (head == closedMarker) throw new IllegalStateException("Writer closed");
+            node.next = head;
+        } while (!pending.compareAndSet(head, node));
+        if (head == null) {
+            LockSupport.unpark(thread); // the writer may be parked on an empty queue
+        }
+        return node;
+    }
+
+    /**
+     * Queue a write and wait for its commit; rethrows the command's exception
+     */
+    public <R> R execute(Command<S, R> command) throws Exception {
+        return await(submit(command));
+    }
+
+    /**
+     * Result of a submitted write, with the command's own exception rethrown as is
+     */
+    public static <R> R await(Future<R> future) throws Exception {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true; // the write is queued either way; wait for its outcome
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception) throw (Exception) cause;
+                    if (cause instanceof Error) throw (Error) cause;
+                    throw e;
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write transactions committed so far
+     */
+    public synchronized long getBatchCount() {
+        return batches;
+    }
+
+    /**
+     * Commands written so far
+     */
+    public synchronized long getCommandCount() {
+        return commands;
+    }
+
+    /**
+     * Stop accepting writes, run the ones already queued and stop the writer thread
+     */
+    public void close() throws InterruptedException {
+        closed = true;
+        LockSupport.unpark(thread);
+        if (Thread.currentThread() != thread) {
+            thread.join();
+        }
+    }
+
+    private void loop() {
+        while (true) {
+            Node<S, ?> batch = pending.getAndSet(null);
+            if (batch == null) {
+                if (closed) {
+                    Node<S, ?> last = pending.getAndSet(closedMarker);
+                    if (last != null) run(reverse(last));
+                    return;
+                }
+                LockSupport.park(this);
+                continue;
+            }
+            run(reverse(batch));
+        }
+    }
+
+    private void run(Node<S, ?> batch) {
+        int size = 0;
+        Throwable commitFailure = null;
+        try {
+            transactions.begin(store);
+            try {
+                for (Node<S, ?> node = batch; node != null; node = node.next) {
+                    node.execute(store);
+                    size++;
+                }
+                transactions.markSuccessful(store);
+            } finally {
+                transactions.end(store);
+            }
+        } catch (Throwable t) {
+            commitFailure = t;
+        }
+
+        for (Node<S, ?> node = batch; node != null; node = node.next) {
+            node.complete(commitFailure);
+        }
+        synchronized (this) {
+            batches++;
+            commands += size;
+        }
+    }
+
+    private static <S> Node<S, ?> reverse(Node<S, ?> head) {
+        Node<S, ?> reversed = null;
+        while (head != null) {
+            Node<S, ?> next = head.next;
+            head.next = reversed;
+            reversed = head;
+            head = next;
+        }
+        return reversed;
+    }
+
+    /**
+     * Queued write and its future
+     */
+    private static final class Node<S, R> implements Future<R> {
+        private final Command<S, R> command;
+        Node<S, ?> next;
+
+        private final CountDownLatch done = new CountDownLatch(1);
+        private R result;
+        private Throwable failure;
+
+        Node(Command<S, R> command) {
+            this.command = command;
+        }
+
+        void execute(S store) {
+            try {
+                result = command.execute(store);
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+
+        void complete(Throwable commitFailure) {
+            if (commitFailure != null) {
+                failure = commitFailure;
+            }
+            done.countDown();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false; // queued writes always run
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        @Override
+        public R get() throws InterruptedException, ExecutionException {
+            done.await();
+            return result();
+        }
+
+        @Override
+        public R get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            if (!done.await(timeout, unit)) throw new TimeoutException();
+            return result();
+        }
+
+        private R result() throws ExecutionException {
+            if (failure != null) throw new ExecutionException(failure);
+            return result;
+        }
+    }
+}
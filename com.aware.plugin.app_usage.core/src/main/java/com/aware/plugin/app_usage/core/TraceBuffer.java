@@ -0,0 +1,148 @@
+package com.aware.plugin.app_usage.core;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size in-memory trace of primitive records, cheap enough to stay on in release builds
+ * A record is the pipeline stage, event type, package id, event time, record time and one value
+ * (event count, row id, duration, ...), stored in preallocated arrays; recording never allocates
+ * once a package has its id. The newest records overwrite the oldest. dump() renders them as text
+ * on demand; records overwritten while dumping are skipped.
+ */
+public final class TraceBuffer {
+
+    public static final int STAGE_CHECK = 1;           // periodic check: eventTime = from, value = events read
+    public static final int STAGE_DECODED = 2;         // event accepted by the decoder
+    public static final int STAGE_SESSION_OPEN = 3;    // eventTime = session start
+    public static final int STAGE_SESSION_CLOSE = 4;   // eventTime = session end, value = duration in ms
+    public static final int STAGE_SESSION_DROPPED = 5; // shorter than the minimum, value = duration in ms
+    public static final int STAGE_INSERT = 6;          // row committed, value = row id
+    public static final int STAGE_SCREEN_OFF = 7;
+    public static final int STAGE_SCREEN_ON = 8;
+
+    private static final String[] STAGE_NAMES = {
+            "?", "check", "decoded", "open", "close", "dropped", "insert", "screen_off", "screen_on"
+    };
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    // Package ids are capped so a flood of unknown packages cannot grow the dictionary forever
+    private static final int MAX_PACKAGES = 8192;
+    private static final int UNKNOWN_PACKAGE = 0;
+
+    private static final TraceBuffer GLOBAL = new TraceBuffer(DEFAULT_CAPACITY);
+
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+
+    // Sequence number of the record in each slot (-1 while it is written)
+    private final AtomicLongArray sequences;
+    // stage (8 bits) | event type (24 bits) | package id (32 bits)
+    private final long[] packed;
+    private final long[] eventTimes;
+    private final long[] recordTimes;
+    private final long[] values;
+
+    private final ConcurrentHashMap<String, Integer> packageIds = new ConcurrentHashMap<>();
+    private final List<String> packageNames = new ArrayList<>();
+
+    /**
+     * @param capacity number of records kept, rounded up to a power of two
+     */
+    public TraceBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mask = size - 1;
+        sequences = new AtomicLongArray(size);
+        packed = new long[size];
+        eventTimes = new long[size];
+        recordTimes = new long[size];
+        values = new long[size];
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, -1);
+        }
+        packageNames.add("-");
+    }
+
+    /**
+     * Process-wide trace shared by the plugin service and the provider
+     */
+    public static TraceBuffer global() {
+        return GLOBAL;
+    }
+
+    public void record(int stage, int eventType, String packageName, long eventTime, long value) {
+        long sequence = next.getAndIncrement();
+        int slot = (int) (sequence & mask);
+        sequences.set(slot, -1);
+        packed[slot] = ((long) (stage & 0xFF) << 56)
+                | ((long) (eventType & 0xFFFFFF) << 32)
+                | (packageId(packageName) & 0xFFFFFFFFL);
+        eventTimes[slot] = eventTime;
+        recordTimes[slot] = System.currentTimeMillis();
+        values[slot] = value;
+        sequences.lazySet(slot, sequence);
+    }
+
+    /**
+     * Number of records written since creation (including overwritten ones)
+     */
+    public long getRecordCount() {
+        return next.get();
+    }
+
+    /**
+     * Write the buffered records, oldest first, one per line
+     */
+    public void dump(Appendable out) throws IOException {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS", Locale.ROOT);
+        long end = next.get();
+        long start = Math.max(0, end - (mask + 1));
+        out.append("# record_time stage event_type package event_time value\n");
+        for (long sequence = start; sequence < end; sequence++) {
+            int slot = (int) (sequence & mask);
+            if (sequences.get(slot) != sequence) continue;
+            long bits = packed[slot];
+            long eventTime = eventTimes[slot];
+            long recordTime = recordTimes[slot];
+            long value = values[slot];
+            if (sequences.get(slot) != sequence) continue; // overwritten meanwhile
+
+            int stage = (int) (bits >>> 56);
+            out.append(format.format(new Date(recordTime))).append(' ')
+                    .append(stage < STAGE_NAMES.length ? STAGE_NAMES[stage] : String.valueOf(stage)).append(' ')
+                    .append(String.valueOf((bits >>> 32) & 0xFFFFFF)).append(' ')
+                    .append(packageName((int) bits)).append(' ')
+                    .append(eventTime > 0 ? format.format(new Date(eventTime)) : "-").append(' ')
+                    .append(String.valueOf(value)).append('\n');
+        }
+    }
+
+    private int packageId(String packageName) {
+        if (packageName == null) return UNKNOWN_PACKAGE;
+        Integer id = packageIds.get(packageName);
+        if (id != null) return id;
+        synchronized (packageNames) {
+            id = packageIds.get(packageName);
+            if (id != null) return id;
+            if (packageNames.size() >= MAX_PACKAGES) return UNKNOWN_PACKAGE;
+            id = packageNames.size();
+            packageNames.add(packageName);
+            packageIds.put(packageName, id);
+            return id;
+        }
+    }
+
+    private String packageName(int id) {
+        synchronized (packageNames) {
+            return id >= 0 && id < packageNames.size() ? packageNames.get(id) : "?";
+        }
+    }
+}
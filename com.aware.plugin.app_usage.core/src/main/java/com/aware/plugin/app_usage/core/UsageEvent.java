@@ -0,0 +1,21 @@
+package com.aware.plugin.app_usage.core;
+
+/**
+ * Decoded usage event fed to the session engine
+ */
+public class UsageEvent {
+    public final String packageName;
+    public final String appName;
+    public final boolean isSystemApp;
+    public final int eventType;
+    public final long timestamp;
+
+    public UsageEvent(String packageName, String appName, boolean isSystemApp,
+                      int eventType, long timestamp) {
+        this.packageName = packageName;
+        this.appName = appName;
+        this.isSystemApp = isSystemApp;
+        this.eventType = eventType;
+        this.timestamp = timestamp;
+    }
+}
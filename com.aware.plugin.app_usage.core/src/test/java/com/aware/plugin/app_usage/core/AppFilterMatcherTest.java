@@ -0,0 +1,101 @@
+package com.aware.plugin.app_usage.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AppFilterMatcherTest {
+
+    /**
+     * Rules, then package names with whether the rules cover them
+     */
+    private static final Object[][] CASES = {
+            // exact
+            {rules("com.example.app"),
+                    "com.example.app", true, "com.example.app2", false, "com.example", false},
+            // prefix
+            {rules("com.google.android.*"),
+                    "com.google.android.gm", true, "com.google.android.", true,
+                    "com.google.androidx", false, "com.google", false},
+            // suffix
+            {rules("*.inputmethod"),
+                    "com.sec.android.inputmethod", true, ".inputmethod", true,
+                    "com.sec.inputmethod.x", false, "inputmethod", false},
+            // substring
+            {rules("*keyboard*"),
+                    "com.touchtype.keyboard.swiftkey", true, "keyboard", true, "org.keyboardx", true,
+                    "com.keybo.ard", false},
+            // substring rules sharing prefixes and suffixes (failure links)
+            {rules("*abcd*", "*bce*", "*cdx*"),
+                    "xxabcexx", true, "abcdx", true, "abccdx", true, "abcx", false, "bcdx", true},
+            // glob with '*' inside and '?'
+            {rules("com.*.keyboard", "org.foo.?"),
+                    "com.x.keyboard", true, "com.a.b.keyboard", true, "com.keyboard", false,
+                    "org.foo.a", true, "org.foo.ab", false, "org.foo.", false},
+            // '*' alone covers everything
+            {rules("*"),
+                    "anything", true, "", true},
+            // overlapping rules of every kind: any one of them is enough
+            {rules("com.google.*", "*.maps", "*tube*", "com.google.android.youtube", "com.?oogle.maps"),
+                    "com.google.android.youtube", true, "com.google.maps", true, "org.osm.maps", true,
+                    "com.vanced.tube.app", true, "com.hoogle.maps", true, "com.hoogle.map", false},
+            // blank and null-like entries are ignored
+            {rules("", "  ", " com.example.app "),
+                    "com.example.app", true, "", false},
+    };
+
+    @Test
+    public void matchesTable() {
+        for (Object[] row : CASES) {
+            String[] ruleSet = (String[]) row[0];
+            AppFilterMatcher matcher = AppFilterMatcher.compile(Arrays.asList(ruleSet));
+            for (int i = 1; i < row.length; i += 2) {
+                String name = (String) row[i];
+                boolean expected = (Boolean) row[i + 1];
+                assertEquals(Arrays.toString(ruleSet) + " vs \"" + name + "\"", expected, matcher.matches(name));
+            }
+        }
+    }
+
+    @Test
+    public void emptyMatcherMatchesNothing() {
+        AppFilterMatcher empty = AppFilterMatcher.compile(Collections.<String>emptyList());
+        assertTrue(empty.isEmpty());
+        assertEquals(0, empty.size());
+        for (String name : new String[]{"", "a", "com.example.app"}) {
+            assertFalse(empty.matches(name));
+            assertFalse(AppFilterMatcher.EMPTY.matches(name));
+        }
+        assertFalse(AppFilterMatcher.EMPTY.matches(null));
+    }
+
+    @Test
+    public void sizeCountsNonBlankRules() {
+        AppFilterMatcher matcher = AppFilterMatcher.compile(Arrays.asList("a", "b.*", "*.c", "*d*", "e.?", " ", null));
+        assertEquals(5, matcher.size());
+        assertFalse(matcher.isEmpty());
+    }
+
+    @Test
+    public void globMatchesTable() {
+        Object[][] cases = {
+                {"a*b", "ab", true}, {"a*b", "axxb", true}, {"a*b", "axxbc", false},
+                {"a?c", "abc", true}, {"a?c", "ac", false},
+                {"*a*b*", "xaybz", true}, {"*a*b*", "xbya", false},
+                {"a**", "a", true}, {"", "", true}, {"", "a", false},
+        };
+        for (Object[] row : cases) {
+            assertEquals(row[0] + " vs " + row[1], row[2],
+                    AppFilterMatcher.globMatches((String) row[0], (String) row[1]));
+        }
+    }
+
+    private static String[] rules(String... rules) {
+        return rules;
+    }
+}
@@ -0,0 +1,74 @@
+package com.aware.plugin.app_usage.core;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class ChunkedBackfillTest {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(2);
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void sessionSpanningChunksIsStitched() throws Exception {
+        final List<String> sessions = new ArrayList<>();
+        SessionEngine engine = new SessionEngine(new SessionSink() {
+            @Override
+            public void onSession(String packageName, String appName, boolean isSystemApp, long startTime, long endTime) {
+                sessions.add(packageName + " " + startTime + "-" + endTime);
+            }
+        });
+
+        long merged = new ChunkedBackfill(pool, 2, 1000).run(0, 3000, new ChunkedBackfill.ChunkLoader() {
+            @Override
+            public List<UsageEvent> load(long start, long end) {
+                if (start == 0) return Arrays.asList(event(EventTypes.MOVE_TO_FOREGROUND, 500));
+                if (start == 2000) return Arrays.asList(event(EventTypes.MOVE_TO_BACKGROUND, 2500));
+                return Collections.emptyList();
+            }
+        }, engine, null);
+
+        assertEquals(2, merged);
+        assertEquals(Arrays.asList("a 500-2500"), sessions);
+    }
+
+    @Test
+    public void interruptStopsTheRun() throws Exception {
+        SessionEngine engine = new SessionEngine(new SessionSink() {
+            @Override
+            public void onSession(String packageName, String appName, boolean isSystemApp, long startTime, long endTime) {
+            }
+        });
+
+        Thread.currentThread().interrupt();
+        try {
+            new ChunkedBackfill(pool, 2, 1000).run(0, 3000, new ChunkedBackfill.ChunkLoader() {
+                @Override
+                public List<UsageEvent> load(long start, long end) {
+                    return Collections.emptyList();
+                }
+            }, engine, null);
+            fail("Expected InterruptedException");
+        } catch (InterruptedException expected) {
+            assertFalse(Thread.currentThread().isInterrupted());
+        }
+    }
+
+    private static UsageEvent event(int eventType, long timestamp) {
+        return new UsageEvent("a", "a", false, eventType, timestamp);
+    }
+}
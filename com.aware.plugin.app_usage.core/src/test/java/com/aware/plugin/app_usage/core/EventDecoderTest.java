@@ -0,0 +1,77 @@
+package com.aware.plugin.app_usage.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class EventDecoderTest {
+
+    private final Map<String, EventDecoder.AppDescriptor> installed = new HashMap<>();
+    private int lookups;
+    private EventDecoder decoder;
+
+    @Before
+    public void setUp() {
+        installed.put("a", new EventDecoder.AppDescriptor("App A", false));
+        decoder = new EventDecoder(new EventDecoder.AppResolver() {
+            @Override
+            public EventDecoder.AppDescriptor resolve(String packageName) {
+                lookups++;
+                return installed.get(packageName);
+            }
+        });
+        decoder.configure(AppFilterMatcher.EMPTY, false);
+    }
+
+    @Test
+    public void appInfoIsLookedUpOncePerPackageUntilReconfigured() {
+        decoder.decode("a", EventTypes.MOVE_TO_FOREGROUND, 1000);
+        decoder.decode("a", EventTypes.MOVE_TO_BACKGROUND, 2000);
+        assertEquals(1, lookups);
+
+        decoder.configure(AppFilterMatcher.EMPTY, false);
+        decoder.decode("a", EventTypes.MOVE_TO_FOREGROUND, 3000);
+        assertEquals(2, lookups);
+    }
+
+    @Test
+    public void forgetPicksUpRenamesAndUninstalls() {
+        assertEquals("App A", decoder.decode("a", EventTypes.MOVE_TO_FOREGROUND, 1000).appName);
+
+        installed.put("a", new EventDecoder.AppDescriptor("Renamed", false));
+        decoder.forget("a");
+        assertEquals("Renamed", decoder.decode("a", EventTypes.MOVE_TO_BACKGROUND, 2000).appName);
+
+        installed.remove("a");
+        decoder.forget("a");
+        assertNull(decoder.decode("a", EventTypes.MOVE_TO_FOREGROUND, 3000));
+    }
+
+    @Test
+    public void installAfterNotInstalledLookupNeedsForget() {
+        assertNull(decoder.decode("b", EventTypes.MOVE_TO_FOREGROUND, 1000));
+
+        installed.put("b", new EventDecoder.AppDescriptor("App B", false));
+        assertNull(decoder.decode("b", EventTypes.MOVE_TO_FOREGROUND, 2000));
+        decoder.forget("b");
+        assertNotNull(decoder.decode("b", EventTypes.MOVE_TO_FOREGROUND, 3000));
+    }
+
+    @Test
+    public void irrelevantAndExcludedEventsAreDropped() {
+        decoder.configure(AppFilterMatcher.compile(new HashSet<>(Arrays.asList("a"))), false);
+
+        assertNull(decoder.decode("a", EventTypes.MOVE_TO_FOREGROUND, 1000));
+        installed.put("c", new EventDecoder.AppDescriptor("App C", false));
+        assertNull(decoder.decode("c", 7, 1000)); // USER_INTERACTION
+        assertNotNull(decoder.decode("c", EventTypes.MOVE_TO_FOREGROUND, 1000));
+    }
+}
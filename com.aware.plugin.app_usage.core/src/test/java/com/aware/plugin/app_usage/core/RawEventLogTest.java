@@ -0,0 +1,162 @@
+package com.aware.plugin.app_usage.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RawEventLogTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void timestampsAndIdsRoundTrip() throws IOException {
+        File directory = folder.newFolder("journal");
+        long[] timestamps = {
+                0, 1, 127, 128, 16383, 16384, // varint length boundaries
+                1700000000000L, 1699999999000L, // delta going backwards (zigzag)
+                1700000000000L + (1L << 40), 5, Long.MAX_VALUE / 4, -1000 // large jumps either way
+        };
+        List<String> written = new ArrayList<>();
+        try (RawEventLog log = RawEventLog.open(directory)) {
+            for (int i = 0; i < timestamps.length; i++) {
+                String packageName = "com.example.app" + (i % 3) + (i == 4 ? "é中" : "");
+                int eventType = i == 7 ? 0xFE : i % 24;
+                log.append(packageName, eventType, timestamps[i]);
+                written.add(packageName + "/" + eventType + "/" + timestamps[i]);
+            }
+            // Ignored: no package, or a type that collides with the dictionary tag
+            log.append(null, 1, 1);
+            log.append("x", 0xFF, 1);
+        }
+        assertEquals(written, readAll(directory));
+    }
+
+    @Test
+    public void everySegmentHasItsOwnDictionary() throws IOException {
+        File directory = folder.newFolder("journal");
+        List<String> written = new ArrayList<>();
+        try (RawEventLog log = RawEventLog.open(directory, 64, Integer.MAX_VALUE)) {
+            for (int i = 0; i < 40; i++) {
+                String packageName = "pkg" + (i % 2);
+                log.append(packageName, 1, 1000L * i);
+                written.add(packageName + "/1/" + 1000L * i);
+            }
+        }
+        File[] segments = segments(directory);
+        assertTrue(segments.length > 2);
+        assertEquals(written, readAll(directory));
+
+        // A segment alone decodes: names and the first timestamp do not depend on the previous one
+        List<String> last = new ArrayList<>();
+        long events = RawEventLog.readSegment(segments[segments.length - 1], collect(last));
+        assertEquals(events, last.size());
+        assertEquals(written.subList(written.size() - last.size(), written.size()), last);
+    }
+
+    @Test
+    public void tornTailIsSkippedAndCutOffOnReopen() throws IOException {
+        File directory = folder.newFolder("journal");
+        try (RawEventLog log = RawEventLog.open(directory)) {
+            log.append("a", 1, 1000);
+            log.append("b", 2, 2000);
+            log.append("averyveryverylongpackagename", 1, 3000);
+        }
+        File segment = segments(directory)[0];
+        // Crash while writing the last dictionary entry (4 bytes of event, 6 of the name cut off)
+        truncate(segment, segment.length() - 10);
+
+        List<String> expected = new ArrayList<>();
+        expected.add("a/1/1000");
+        expected.add("b/2/2000");
+        assertEquals(expected, readAll(directory));
+
+        try (RawEventLog log = RawEventLog.open(directory)) {
+            log.append("b", 1, 4000);
+            log.append("c", 2, 5000);
+        }
+        expected.add("b/1/4000");
+        expected.add("c/2/5000");
+        assertEquals(expected, readAll(directory));
+        assertEquals(1, segments(directory).length);
+    }
+
+    @Test
+    public void restartsContinueTheNewestSegment() throws IOException {
+        File directory = folder.newFolder("journal");
+        for (int start = 0; start < 5; start++) {
+            try (RawEventLog log = RawEventLog.open(directory)) {
+                log.append("a", 1, start * 1000L);
+            }
+        }
+        assertEquals(1, segments(directory).length);
+        assertEquals(5, readAll(directory).size());
+    }
+
+    @Test
+    public void oldestSegmentsAreDeletedBeyondMax() throws IOException {
+        File directory = folder.newFolder("journal");
+        List<String> written = new ArrayList<>();
+        try (RawEventLog log = RawEventLog.open(directory, 32, 3)) {
+            for (int i = 0; i < 100; i++) {
+                log.append("pkg", 1, i);
+                log.flush();
+                written.add("pkg/1/" + i);
+            }
+        }
+        File[] segments = segments(directory);
+        assertEquals(3, segments.length);
+        List<String> kept = readAll(directory);
+        assertEquals(written.subList(written.size() - kept.size(), written.size()), kept);
+    }
+
+    @Test
+    public void fullNewestSegmentIsNotContinued() throws IOException {
+        File directory = folder.newFolder("journal");
+        try (RawEventLog log = RawEventLog.open(directory, 16, 3)) {
+            log.append("com.example.longname", 1, 1000); // header and dictionary entry exceed 16 bytes
+        }
+        try (RawEventLog log = RawEventLog.open(directory, 16, 3)) {
+            log.append("a", 1, 2000);
+        }
+        assertEquals(2, segments(directory).length);
+        assertEquals(2, readAll(directory).size());
+    }
+
+    private static List<String> readAll(File directory) throws IOException {
+        List<String> events = new ArrayList<>();
+        RawEventLog.read(directory, collect(events));
+        return events;
+    }
+
+    private static RawEventLog.Visitor collect(final List<String> events) {
+        return new RawEventLog.Visitor() {
+            @Override
+            public void onEvent(String packageName, int eventType, long timestamp) {
+                events.add(packageName + "/" + eventType + "/" + timestamp);
+            }
+        };
+    }
+
+    private static File[] segments(File directory) {
+        File[] files = directory.listFiles();
+        Arrays.sort(files);
+        return files;
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.aware.plugin.app_usage.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SessionEngineTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private RecordingSink sink;
+    private SessionEngine engine;
+
+    @Before
+    public void setUp() {
+        sink = new RecordingSink();
+        engine = new SessionEngine(sink);
+    }
+
+    @Test
+    public void foregroundThenBackgroundSavesOneSession() {
+        engine.processEvent(event("a", EventTypes.MOVE_TO_FOREGROUND, 1000));
+        assertEquals(1, engine.getActiveSessionCount());
+
+        engine.processEvent(event("a", EventTypes.MOVE_TO_BACKGROUND, 6000));
+
+        assertEquals(Arrays.asList("a 1000-6000"), sink.sessions);
+        assertEquals(0, engine.getActiveSessionCount());
+    }
+
+    @Test
+    public void repeatedForegroundKeepsTheOpenSession() {
+        engine.processEvent(event("a", EventTypes.MOVE_TO_FOREGROUND, 1000));
+        engine.processEvent(event("a", EventTypes.MOVE_TO_FOREGROUND, 3000));
+        engine.processEvent(event("a", EventTypes.MOVE_TO_BACKGROUND, 6000));
+
+        assertEquals(Arrays.asList("a 1000-6000"), sink.sessions);
+    }
+
+    @Test
+    public void pictureInPictureKeepsBothSessionsOpen() {
+        // Video keeps playing in PiP while another app is resumed on top
+        engine.processEvent(event("video", EventTypes.ACTIVITY_RESUMED, 1000));
+        engine.processEvent(event("chat", EventTypes.ACTIVITY_RESUMED, 4000));
+        assertEquals(2, engine.getActiveSessionCount());
+
+        engine.processEvent(event("chat", EventTypes.ACTIVITY_PAUSED, 9000));
+        engine.processEvent(event("video", EventTypes.ACTIVITY_PAUSED, 12000));
+
+        assertEquals(Arrays.asList("chat 4000-9000", "video 1000-12000"), sink.sessions);
+    }
+
+    @Test
+    public void activityStoppedDoesNotCloseTheSession() {
+        engine.processEvent(event("a", EventTypes.ACTIVITY_RESUMED, 1000));
+        engine.processEvent(event("a", EventTypes.ACTIVITY_STOPPED, 2000));
+        assertEquals(1, engine.getActiveSessionCount());
+
+        engine.processEvent(event("a", EventTypes.ACTIVITY_PAUSED, 5000));
+        assertEquals(Arrays.asList("a 1000-5000"), sink.sessions);
+    }
+
+    @Test
+    public void screenOffClosesSessionsAndBlocksForegroundUntilScreenOn() {
+        engine.processEvent(event("a", EventTypes.MOVE_TO_FOREGROUND, 1000));
+        engine.screenOff(4000);
+
+        assertEquals(Arrays.asList("a 1000-4000"), sink.sessions);
+        assertFalse(engine.isScreenOn());
+
+        engine.processEvent(event("b", EventTypes.MOVE_TO_FOREGROUND, 5000));
+        assertEquals(0, engine.getActiveSessionCount());
+
+        engine.screenOn();
+        engine.processEvent(event("b", EventTypes.MOVE_TO_FOREGROUND, 7000));
+        engine.processEvent(event("b", EventTypes.MOVE_TO_BACKGROUND, 10000));
+        assertTrue(engine.isScreenOn());
+        assertEquals(Arrays.asList("a 1000-4000", "b 7000-10000"), sink.sessions);
+    }
+
+    @Test
+    public void screenNonInteractiveEventClosesSessionsAtItsTimestamp() {
+        // Screen events in the UsageStats stream end sessions at the event time, not at the next background event
+        List<UsageEvent> events = new ArrayList<>(Arrays.asList(
+                event("a", EventTypes.MOVE_TO_FOREGROUND, 1000),
+                event("b", EventTypes.MOVE_TO_FOREGROUND, 2000),
+                event(null, EventTypes.SCREEN_NON_INTERACTIVE, 8000),
+                event("a", EventTypes.MOVE_TO_BACKGROUND, 20000),
+                event(null, EventTypes.SCREEN_INTERACTIVE, 30000),
+                event("a", EventTypes.MOVE_TO_FOREGROUND, 31000),
+                event("a", EventTypes.MOVE_TO_BACKGROUND, 33000)));
+        engine.processEvents(events);
+
+        assertEquals(3, sink.sessions.size());
+        assertTrue(sink.sessions.containsAll(Arrays.asList("a 1000-8000", "b 2000-8000", "a 31000-33000")));
+    }
+
+    @Test
+    public void sessionsShorterThanTheMinimumAreDropped() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        engine = new SessionEngine(sink, 1000, metrics);
+
+        engine.processEvent(event("a", EventTypes.MOVE_TO_FOREGROUND, 1000));
+        engine.processEvent(event("a", EventTypes.MOVE_TO_BACKGROUND, 1999));
+        engine.processEvent(event("b", EventTypes.MOVE_TO_FOREGROUND, 3000));
+        engine.processEvent(event("b", EventTypes.MOVE_TO_BACKGROUND, 4000));
+
+        assertEquals(Arrays.asList("b 3000-4000"), sink.sessions);
+        assertEquals(1, metrics.get(PipelineMetrics.Counter.SESSIONS_TOO_SHORT));
+    }
+
+    @Test
+    public void closeAllEndsEveryOpenSession() {
+        engine.processEvent(event("a", EventTypes.MOVE_TO_FOREGROUND, 1000));
+        engine.processEvent(event("b", EventTypes.MOVE_TO_FOREGROUND, 2000));
+
+        engine.closeAll(10000);
+
+        assertEquals(0, engine.getActiveSessionCount());
+        assertEquals(2, sink.sessions.size());
+        assertTrue(sink.sessions.containsAll(Arrays.asList("a 1000-10000", "b 2000-10000")));
+        assertTrue(engine.isScreenOn());
+    }
+
+    @Test
+    public void processEventsSortsTheBatchByTimestamp() {
+        List<UsageEvent> events = new ArrayList<>(Arrays.asList(
+                event("a", EventTypes.MOVE_TO_BACKGROUND, 6000),
+                event("a", EventTypes.MOVE_TO_FOREGROUND, 1000)));
+        engine.processEvents(events);
+
+        assertEquals(Arrays.asList("a 1000-6000"), sink.sessions);
+    }
+
+    @Test
+    public void restartRestoresOpenSessionsAndSkipsProcessedEvents() throws IOException {
+        File file = folder.newFile("sessions.journal");
+        try (SessionJournal journal = SessionJournal.open(file)) {
+            engine = new SessionEngine(sink, 1000, null, null, journal);
+            engine.processEvents(new ArrayList<>(Arrays.asList(event("a", EventTypes.MOVE_TO_FOREGROUND, 1000))));
+        }
+
+        try (SessionJournal journal = SessionJournal.open(file)) {
+            engine = new SessionEngine(sink, 1000, null, null, journal);
+            assertEquals(1, engine.restoreFromJournal());
+            assertEquals(1000, engine.getResumeTime());
+
+            engine.processEvents(new ArrayList<>(Arrays.asList(
+                    event("a", EventTypes.MOVE_TO_FOREGROUND, 1000),
+                    event("a", EventTypes.MOVE_TO_BACKGROUND, 5000))));
+        }
+        assertEquals(Arrays.asList("a 1000-5000"), sink.sessions);
+    }
+
+    @Test
+    public void restartWhileScreenIsOffKeepsTheScreenOff() throws IOException {
+        File file = folder.newFile("sessions.journal");
+        try (SessionJournal journal = SessionJournal.open(file)) {
+            engine = new SessionEngine(sink, 1000, null, null, journal);
+            engine.processEvent(event("a", EventTypes.MOVE_TO_FOREGROUND, 1000));
+            engine.screenOff(4000);
+        }
+
+        try (SessionJournal journal = SessionJournal.open(file)) {
+            engine = new SessionEngine(sink, 1000, null, null, journal);
+            engine.restoreFromJournal();
+            assertFalse(engine.isScreenOn());
+
+            engine.processEvent(event("b", EventTypes.MOVE_TO_FOREGROUND, 5000));
+            assertEquals(0, engine.getActiveSessionCount());
+
+            engine.screenOn();
+        }
+
+        try (SessionJournal journal = SessionJournal.open(file)) {
+            engine = new SessionEngine(sink, 1000, null, null, journal);
+            engine.restoreFromJournal();
+            assertTrue(engine.isScreenOn());
+        }
+    }
+
+    @Test
+    public void sessionsBeyondTheJournalSlotsAreCounted() throws IOException {
+        PipelineMetrics metrics = new PipelineMetrics();
+        try (SessionJournal journal = SessionJournal.open(folder.newFile("sessions.journal"))) {
+            engine = new SessionEngine(sink, 1000, metrics, null, journal);
+            for (int i = 0; i < SessionJournal.SLOT_COUNT + 2; i++) {
+                engine.processEvent(event("app" + i, EventTypes.MOVE_TO_FOREGROUND, 1000 + i));
+            }
+
+            assertEquals(SessionJournal.SLOT_COUNT + 2, engine.getActiveSessionCount());
+            assertEquals(2, engine.getUnjournaledSessionCount());
+            assertEquals(2, metrics.get(PipelineMetrics.Counter.SESSIONS_NOT_JOURNALED));
+            assertEquals(SessionJournal.SLOT_COUNT, journal.entries().size());
+        }
+    }
+
+    private static UsageEvent event(String packageName, int eventType, long timestamp) {
+        return new UsageEvent(packageName, packageName, false, eventType, timestamp);
+    }
+
+    private static final class RecordingSink implements SessionSink {
+        final List<String> sessions = new ArrayList<>();
+
+        @Override
+        public void onSession(String packageName, String appName, boolean isSystemApp, long startTime, long endTime) {
+            sessions.add(packageName + " " + startTime + "-" + endTime);
+        }
+    }
+}
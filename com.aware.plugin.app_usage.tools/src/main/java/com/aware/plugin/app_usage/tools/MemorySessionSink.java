@@ -0,0 +1,39 @@
+package com.aware.plugin.app_usage.tools;
+
+import com.aware.plugin.app_usage.core.SessionSink;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps every closed session as a row in memory (what the provider would store)
+ */
+final class MemorySessionSink implements SessionSink {
+
+    static final class Row {
+        final String packageName;
+        final String appName;
+        final boolean isSystemApp;
+        final long startTime;
+        final long endTime;
+
+        Row(String packageName, String appName, boolean isSystemApp, long startTime, long endTime) {
+            this.packageName = packageName;
+            this.appName = appName;
+            this.isSystemApp = isSystemApp;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+    }
+
+    private final List<Row> rows = new ArrayList<>();
+
+    @Override
+    public void onSession(String packageName, String appName, boolean isSystemApp, long startTime, long endTime) {
+        rows.add(new Row(packageName, appName, isSystemApp, startTime, endTime));
+    }
+
+    int getRowCount() {
+        return rows.size();
+    }
+}
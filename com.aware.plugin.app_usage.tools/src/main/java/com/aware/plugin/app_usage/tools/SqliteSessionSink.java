@@ -0,0 +1,105 @@
+package com.aware.plugin.app_usage.tools;
+
+import com.aware.plugin.app_usage.core.SessionSink;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Writes closed sessions into a SQLite plugin_app_usage table with the provider's columns,
+ * formatted the way Plugin.saveAppUsageSession stores them
+ */
+final class SqliteSessionSink implements SessionSink, Closeable {
+
+    private static final int COMMIT_EVERY = 1000;
+
+    private final Connection connection;
+    private final PreparedStatement insert;
+    private final SimpleDateFormat isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.getDefault());
+    private int pending;
+    private SQLException failure;
+
+    SqliteSessionSink(File database) throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite:" + database.getPath());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS plugin_app_usage ("
+                    + "_id integer primary key autoincrement,"
+                    + "timestamp real default 0,"
+                    + "device_id text default '',"
+                    + "package_name text default '',"
+                    + "category text default '',"
+                    + "application_name text default '',"
+                    + "is_system_app integer default 0,"
+                    + "app_on text default '',"
+                    + "app_off text default '',"
+                    + "app_usage real default 0)");
+        }
+        connection.setAutoCommit(false);
+        insert = connection.prepareStatement("INSERT INTO plugin_app_usage (timestamp, device_id, package_name, "
+                + "category, application_name, is_system_app, app_on, app_off, app_usage) "
+                + "VALUES (?, 'replay', ?, 'not_registered', ?, ?, ?, ?, ?)");
+    }
+
+    @Override
+    public void onSession(String packageName, String appName, boolean isSystemApp, long startTime, long endTime) {
+        if (failure != null) return;
+        try {
+            insert.setLong(1, endTime);
+            insert.setString(2, packageName);
+            insert.setString(3, appName);
+            insert.setInt(4, isSystemApp ? 1 : 0);
+            insert.setString(5, isoFormat.format(new Date(startTime)));
+            insert.setString(6, isoFormat.format(new Date(endTime)));
+            insert.setLong(7, (endTime - startTime) / 1000); // seconds
+            insert.addBatch();
+            if (++pending >= COMMIT_EVERY) {
+                commit();
+            }
+        } catch (SQLException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Rows stored in the table
+     */
+    long countRows() throws SQLException {
+        commit();
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM plugin_app_usage")) {
+            return result.next() ? result.getLong(1) : 0;
+        }
+    }
+
+    private void commit() throws SQLException {
+        if (pending > 0) {
+            insert.executeBatch();
+            pending = 0;
+        }
+        connection.commit();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            commit();
+            insert.close();
+            connection.close();
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+        if (failure != null) {
+            throw new IOException(failure);
+        }
+    }
+}
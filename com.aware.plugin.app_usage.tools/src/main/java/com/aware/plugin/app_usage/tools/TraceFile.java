@@ -0,0 +1,104 @@
+package com.aware.plugin.app_usage.tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary trace file, streamed in both directions so multi-million event traces never sit in memory
+ * Layout: magic, version, then records; a package name is written once (PACKAGE record) and events
+ * refer to it by id. EVENT records: package id, event type, timestamp.
+ */
+final class TraceFile {
+
+    private static final int MAGIC = 0x41555452; // "AUTR"
+    private static final int VERSION = 1;
+    private static final byte PACKAGE = 1;
+    private static final byte EVENT = 2;
+
+    private TraceFile() {
+    }
+
+    /**
+     * Streaming writer; usable directly as the generator's consumer
+     */
+    static final class Writer implements TraceGenerator.EventConsumer, Closeable {
+        private final DataOutputStream out;
+        private final Map<String, Integer> packageIds = new HashMap<>();
+        private IOException failure;
+
+        Writer(File file) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        @Override
+        public void onEvent(String packageName, int eventType, long timestamp) {
+            if (failure != null) return;
+            try {
+                Integer id = packageIds.get(packageName);
+                if (id == null) {
+                    id = packageIds.size();
+                    packageIds.put(packageName, id);
+                    out.writeByte(PACKAGE);
+                    out.writeUTF(packageName);
+                }
+                out.writeByte(EVENT);
+                out.writeInt(id);
+                out.writeByte(eventType);
+                out.writeLong(timestamp);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+            if (failure != null) throw failure;
+        }
+    }
+
+    /**
+     * Replay a trace file into a consumer; returns the number of events read
+     */
+    static long read(File file, TraceGenerator.EventConsumer consumer) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a trace file: " + file);
+            }
+            List<String> packages = new ArrayList<>();
+            long count = 0;
+            while (true) {
+                int tag;
+                try {
+                    tag = in.readByte();
+                } catch (EOFException end) {
+                    return count;
+                }
+                if (tag == PACKAGE) {
+                    packages.add(in.readUTF());
+                } else if (tag == EVENT) {
+                    String packageName = packages.get(in.readInt());
+                    int eventType = in.readUnsignedByte();
+                    consumer.onEvent(packageName, eventType, in.readLong());
+                    count++;
+                } else {
+                    throw new IOException("Corrupt trace file at event " + count);
+                }
+            }
+        }
+    }
+}
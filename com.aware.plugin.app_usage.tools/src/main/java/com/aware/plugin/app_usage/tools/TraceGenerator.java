@@ -0,0 +1,247 @@
+package com.aware.plugin.app_usage.tools;
+
+import com.aware.plugin.app_usage.core.EventTypes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded generator of realistic UsageStatsManager event streams
+ * Per screen-on period: SCREEN_INTERACTIVE, a launcher visit, a few app visits made of
+ * ACTIVITY_RESUMED/PAUSED/STOPPED transitions between activities of the same app, noise events
+ * (user interaction, notifications, configuration changes), occasional picture-in-picture apps that
+ * stay visible across later visits, and SCREEN_NON_INTERACTIVE, sometimes before the last pause.
+ * Days have a night gap, so multi-day traces with millions of events stream without buffering.
+ */
+public final class TraceGenerator {
+
+    public static final String SYSTEM_PACKAGE = "android";
+    public static final String LAUNCHER_PACKAGE = "com.android.launcher3";
+
+    // Event types that are not relevant to sessions but dominate real streams
+    public static final int USER_INTERACTION = 7;
+    public static final int CONFIGURATION_CHANGE = 5;
+    public static final int NOTIFICATION_SEEN = 10;
+
+    private static final long START_TIME = 1700000000000L; // fixed, so traces are reproducible
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final long AWAKE_MS = 16L * 60 * 60 * 1000;
+
+    /**
+     * Receives generated events in timestamp order
+     */
+    public interface EventConsumer {
+        void onEvent(String packageName, int eventType, long timestamp);
+    }
+
+    private final long seed;
+    private final String[] packages;
+    private final int days;
+    private final int unlocksPerDay;
+
+    public TraceGenerator(long seed, int apps, int days, int unlocksPerDay) {
+        this.seed = seed;
+        this.days = days;
+        this.unlocksPerDay = unlocksPerDay;
+        this.packages = new String[apps];
+        for (int i = 0; i < apps; i++) {
+            packages[i] = packageName(i);
+        }
+    }
+
+    public static String packageName(int index) {
+        return "com.vendor" + (index % 37) + ".app" + index;
+    }
+
+    /**
+     * Installed packages of the simulated device (system and launcher packages excluded)
+     */
+    public String[] getPackages() {
+        return packages.clone();
+    }
+
+    /**
+     * Generate the whole trace
+     */
+    public long generate(EventConsumer consumer) {
+        return generate(consumer, Long.MAX_VALUE);
+    }
+
+    /**
+     * Generate at most maxEvents events; returns the number of events produced
+     */
+    public long generate(EventConsumer consumer, long maxEvents) {
+        Emitter out = new Emitter(consumer, maxEvents);
+        Random random = new Random(seed);
+        long meanGap = AWAKE_MS / Math.max(1, unlocksPerDay);
+
+        for (int day = 0; day < days && !out.isFull(); day++) {
+            long time = START_TIME + day * DAY_MS;
+            long dayEnd = time + AWAKE_MS;
+            while (time < dayEnd && !out.isFull()) {
+                time = screenOnPeriod(random, out, time);
+                time += 1000 + (long) (meanGap * -Math.log(1 - random.nextDouble())); // exponential gaps
+            }
+        }
+        out.flush(Long.MAX_VALUE);
+        return out.count;
+    }
+
+    private long screenOnPeriod(Random random, Emitter out, long time) {
+        out.add(SYSTEM_PACKAGE, EventTypes.SCREEN_INTERACTIVE, time);
+
+        // Short look at notifications without opening an app
+        if (random.nextInt(4) == 0) {
+            time += 2000 + random.nextInt(8000);
+            out.add(SYSTEM_PACKAGE, NOTIFICATION_SEEN, time);
+            return screenOff(random, out, time, null);
+        }
+
+        time = visit(random, out, LAUNCHER_PACKAGE, time, 1, 500 + random.nextInt(3000));
+
+        int visits = 1 + random.nextInt(5);
+        String pictureInPicture = null;
+        String lastApp = null;
+        for (int v = 0; v < visits && !out.isFull(); v++) {
+            String app = packages[skewedIndex(random, packages.length)];
+            int activities = 1 + random.nextInt(4);
+            long duration = 3000 + (long) (60000 * -Math.log(1 - random.nextDouble()));
+            boolean isLast = v == visits - 1;
+
+            if (isLast && random.nextInt(3) == 0) {
+                // Screen turns off while the app is still resumed; the pause follows the screen off
+                time = resumeActivities(random, out, app, time, activities, duration);
+                lastApp = app;
+                break;
+            }
+            time = visit(random, out, app, time, activities, duration);
+
+            // The app continues in picture-in-picture over the next visits
+            if (pictureInPicture == null && random.nextInt(25) == 0) {
+                pictureInPicture = app;
+                out.add(app, EventTypes.MOVE_TO_FOREGROUND, time + 20);
+                time += 40;
+            }
+            time = visit(random, out, LAUNCHER_PACKAGE, time, 1, 300 + random.nextInt(1500));
+        }
+
+        if (pictureInPicture != null) {
+            time += 500;
+            out.add(pictureInPicture, EventTypes.MOVE_TO_BACKGROUND, time);
+            out.addLater(pictureInPicture, EventTypes.ACTIVITY_STOPPED, time + 30);
+        }
+        return screenOff(random, out, time + 1000 + random.nextInt(5000), lastApp);
+    }
+
+    private long screenOff(Random random, Emitter out, long time, String resumedApp) {
+        out.add(SYSTEM_PACKAGE, EventTypes.SCREEN_NON_INTERACTIVE, time);
+        if (resumedApp != null) {
+            out.add(resumedApp, EventTypes.ACTIVITY_PAUSED, time + 60);
+            out.addLater(resumedApp, EventTypes.ACTIVITY_STOPPED, time + 400);
+            time += 60;
+        }
+        return time;
+    }
+
+    /**
+     * Full visit: activities resumed in turn, then the last one paused and stopped
+     */
+    private long visit(Random random, Emitter out, String app, long time, int activities, long duration) {
+        time = resumeActivities(random, out, app, time, activities, duration);
+        out.add(app, EventTypes.ACTIVITY_PAUSED, time);
+        // The stop lands after the next app resumed
+        out.addLater(app, EventTypes.ACTIVITY_STOPPED, time + 300 + random.nextInt(400));
+        return time + 50;
+    }
+
+    /**
+     * Resume the first activity and switch between activities; returns with the last one still resumed
+     */
+    private long resumeActivities(Random random, Emitter out, String app, long time, int activities, long duration) {
+        long perActivity = duration / activities;
+        out.add(app, EventTypes.ACTIVITY_RESUMED, time);
+        for (int a = 1; a <= activities; a++) {
+            long activityEnd = time + perActivity;
+            int interactions = random.nextInt(4);
+            for (int i = 0; i < interactions; i++) {
+                time += 1 + perActivity / (interactions + 1);
+                out.add(app, random.nextInt(15) == 0 ? CONFIGURATION_CHANGE : USER_INTERACTION, time);
+            }
+            time = activityEnd;
+            if (a < activities) {
+                // Next activity of the same app: pause, resume a few ms later, stop the previous one
+                out.add(app, EventTypes.ACTIVITY_PAUSED, time);
+                out.add(app, EventTypes.ACTIVITY_RESUMED, time + 30);
+                out.addLater(app, EventTypes.ACTIVITY_STOPPED, time + 250);
+                time += 30;
+            }
+        }
+        return time;
+    }
+
+    /**
+     * Popular apps get most of the visits (roughly like real usage)
+     */
+    private static int skewedIndex(Random random, int count) {
+        double r = random.nextDouble();
+        return (int) (count * r * r * r);
+    }
+
+    private static final class Emitter {
+        private final EventConsumer consumer;
+        private final long maxEvents;
+        private long count;
+
+        // Events scheduled ahead of the current time (activity stops), ordered by timestamp
+        private final List<Deferred> deferred = new ArrayList<>();
+
+        Emitter(EventConsumer consumer, long maxEvents) {
+            this.consumer = consumer;
+            this.maxEvents = maxEvents;
+        }
+
+        boolean isFull() {
+            return count >= maxEvents;
+        }
+
+        void add(String packageName, int eventType, long timestamp) {
+            flush(timestamp);
+            emit(packageName, eventType, timestamp);
+        }
+
+        void addLater(String packageName, int eventType, long timestamp) {
+            int i = deferred.size();
+            while (i > 0 && deferred.get(i - 1).timestamp > timestamp) i--;
+            deferred.add(i, new Deferred(packageName, eventType, timestamp));
+        }
+
+        /**
+         * Emit deferred events due at or before the given time
+         */
+        void flush(long time) {
+            while (!deferred.isEmpty() && deferred.get(0).timestamp <= time) {
+                Deferred event = deferred.remove(0);
+                emit(event.packageName, event.eventType, event.timestamp);
+            }
+        }
+
+        private void emit(String packageName, int eventType, long timestamp) {
+            if (isFull()) return;
+            consumer.onEvent(packageName, eventType, timestamp);
+            count++;
+        }
+    }
+
+    private static final class Deferred {
+        final String packageName;
+        final int eventType;
+        final long timestamp;
+
+        Deferred(String packageName, int eventType, long timestamp) {
+            this.packageName = packageName;
+            this.eventType = eventType;
+            this.timestamp = timestamp;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.aware.plugin.app_usage.tools;
+
+import com.aware.plugin.app_usage.core.AppFilterMatcher;
+import com.aware.plugin.app_usage.core.EventDecoder;
+import com.aware.plugin.app_usage.core.RawEventLog;
+import com.aware.plugin.app_usage.core.SessionEngine;
+import com.aware.plugin.app_usage.core.SessionSink;
+import com.aware.plugin.app_usage.core.UsageEvent;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Command-line trace tool
+ *
+ *   generate --out FILE|DIR [--format trace|journal] [trace options]
+ *       write a seeded synthetic trace to a file, or to a raw event journal directory
+ *   replay [--trace FILE | trace options] [--sink memory|sqlite|none] [--db FILE] [--batch N] [--min-duration MS]
+ *       decode the events and drive the session engine (the logic behind AppUsageSessionManager),
+ *       then report sessions/sec, peak heap and output rows
+ *   resessionize --journal DIR [replay options]
+ *       recompute sessions from a raw event journal pulled from a device (RawEventLog)
+ *
+ * Trace options: --seed N (1), --apps N (150), --days N (7), --unlocks N per day (120), --max-events N
+ */
+public final class TraceTool {
+
+    private TraceTool() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || (!"generate".equals(args[0]) && !"replay".equals(args[0])
+                && !"resessionize".equals(args[0]))) {
+            usage();
+            return;
+        }
+        Map<String, String> options = parseOptions(args);
+        if ("generate".equals(args[0])) {
+            generate(options);
+        } else if ("resessionize".equals(args[0]) && !options.containsKey("journal")) {
+            usage();
+        } else {
+            replay(options);
+        }
+    }
+
+    private static void generate(Map<String, String> options) throws Exception {
+        String out = options.get("out");
+        if (out == null) {
+            usage();
+            return;
+        }
+        TraceGenerator generator = createGenerator(options);
+        long start = System.nanoTime();
+        long events;
+        long bytes;
+        if ("journal".equals(option(options, "format", "trace"))) {
+            // Same layout as the on-device journal; unlimited segments so nothing is rotated away
+            final RawEventLog log = RawEventLog.open(new File(out), RawEventLog.DEFAULT_SEGMENT_BYTES, Integer.MAX_VALUE);
+            try {
+                events = generator.generate(new TraceGenerator.EventConsumer() {
+                    @Override
+                    public void onEvent(String packageName, int eventType, long timestamp) {
+                        try {
+                            log.append(packageName, eventType, timestamp);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                }, maxEvents(options));
+            } finally {
+                log.close();
+            }
+            bytes = directorySize(new File(out));
+        } else {
+            try (TraceFile.Writer writer = new TraceFile.Writer(new File(out))) {
+                events = generator.generate(writer, maxEvents(options));
+            }
+            bytes = new File(out).length();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "Wrote %,d events to %s in %.2f s (%,d bytes, %.2f bytes/event)%n",
+                events, out, seconds, bytes, bytes / (double) Math.max(1, events));
+    }
+
+    private static void replay(Map<String, String> options) throws Exception {
+        String sinkName = option(options, "sink", "memory");
+        int batchSize = Integer.parseInt(option(options, "batch", "10000"));
+        long minDuration = Long.parseLong(option(options, "min-duration", String.valueOf(SessionEngine.DEFAULT_MIN_DURATION_MS)));
+        TraceGenerator generator = createGenerator(options);
+
+        // Installed apps of the simulated device; the filter is empty (blacklist mode, nothing listed)
+        final Map<String, EventDecoder.AppDescriptor> installed = new HashMap<>();
+        installed.put(TraceGenerator.SYSTEM_PACKAGE, new EventDecoder.AppDescriptor("Android System", true));
+        installed.put(TraceGenerator.LAUNCHER_PACKAGE, new EventDecoder.AppDescriptor("Launcher", true));
+        for (String packageName : generator.getPackages()) {
+            installed.put(packageName, new EventDecoder.AppDescriptor(packageName, false));
+        }
+        EventDecoder decoder = new EventDecoder(new EventDecoder.AppResolver() {
+            @Override
+            public EventDecoder.AppDescriptor resolve(String packageName) {
+                EventDecoder.AppDescriptor app = installed.get(packageName);
+                // Packages of a trace file or journal that the generator does not know count as user apps
+                return app != null ? app : new EventDecoder.AppDescriptor(packageName, false);
+            }
+        });
+        decoder.configure(AppFilterMatcher.EMPTY, false);
+
+        SessionSink sink;
+        File database = null;
+        if ("sqlite".equals(sinkName)) {
+            database = new File(option(options, "db", "replay.db"));
+            sink = new SqliteSessionSink(database);
+        } else if ("memory".equals(sinkName)) {
+            sink = new MemorySessionSink();
+        } else if ("none".equals(sinkName)) {
+            sink = new CountingSink();
+        } else {
+            throw new IllegalArgumentException("Unknown sink: " + sinkName + " (memory, sqlite or none)");
+        }
+        CountingSink counter = new CountingSink(sink);
+
+        resetPeakHeap();
+        long start = System.nanoTime();
+
+        // Periodic checks: decode a batch of events, then hand it to the engine
+        Replay replay = new Replay(decoder, new SessionEngine(counter, minDuration), batchSize);
+        long events;
+        String trace = options.get("trace");
+        String journal = options.get("journal");
+        if (journal != null) {
+            events = RawEventLog.read(new File(journal), replay);
+        } else if (trace != null) {
+            events = TraceFile.read(new File(trace), replay);
+        } else {
+            events = generator.generate(replay, maxEvents(options));
+        }
+        replay.finish();
+
+        long rows;
+        if (sink instanceof SqliteSessionSink) {
+            rows = ((SqliteSessionSink) sink).countRows();
+        } else if (sink instanceof MemorySessionSink) {
+            rows = ((MemorySessionSink) sink).getRowCount();
+        } else {
+            rows = counter.sessions;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long peakHeap = peakHeap();
+        if (sink instanceof Closeable) {
+            ((Closeable) sink).close();
+        }
+
+        System.out.printf(Locale.ROOT, "Events:        %,d read, %,d decoded%n", events, replay.decoded);
+        System.out.printf(Locale.ROOT, "Sessions:      %,d%n", counter.sessions);
+        System.out.printf(Locale.ROOT, "Output rows:   %,d (%s sink)%n", rows, sinkName);
+        System.out.printf(Locale.ROOT, "Elapsed:       %.2f s%s%n", seconds,
+                trace == null && journal == null ? " (including generation)" : "");
+        System.out.printf(Locale.ROOT, "Throughput:    %,.0f events/s, %,.0f sessions/s%n",
+                events / seconds, counter.sessions / seconds);
+        System.out.printf(Locale.ROOT, "Peak heap:     %,.1f MB%n", peakHeap / (1024.0 * 1024.0));
+        if (database != null) {
+            System.out.printf(Locale.ROOT, "Database:      %s (%,d bytes)%n", database, database.length());
+        }
+    }
+
+    /**
+     * Decodes streamed events and feeds them to the engine in check-sized batches
+     */
+    private static final class Replay implements TraceGenerator.EventConsumer, RawEventLog.Visitor {
+        private final EventDecoder decoder;
+        private final SessionEngine engine;
+        private final int batchSize;
+        private final List<UsageEvent> batch;
+        private long decoded;
+        private long lastTimestamp;
+
+        Replay(EventDecoder decoder, SessionEngine engine, int batchSize) {
+            this.decoder = decoder;
+            this.engine = engine;
+            this.batchSize = batchSize;
+            this.batch = new ArrayList<>(batchSize);
+        }
+
+        @Override
+        public void onEvent(String packageName, int eventType, long timestamp) {
+            lastTimestamp = timestamp;
+            UsageEvent event = decoder.decode(packageName, eventType, timestamp);
+            if (event == null) return;
+            decoded++;
+            batch.add(event);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void finish() {
+            flush();
+            engine.closeAll(lastTimestamp);
+        }
+
+        private void flush() {
+            engine.processEvents(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Counts sessions and optionally forwards them
+     */
+    private static final class CountingSink implements SessionSink {
+        private final SessionSink target;
+        long sessions;
+
+        CountingSink() {
+            this(null);
+        }
+
+        CountingSink(SessionSink target) {
+            this.target = target;
+        }
+
+        @Override
+        public void onSession(String packageName, String appName, boolean isSystemApp, long startTime, long endTime) {
+            sessions++;
+            if (target != null) {
+                target.onSession(packageName, appName, isSystemApp, startTime, endTime);
+            }
+        }
+    }
+
+    private static TraceGenerator createGenerator(Map<String, String> options) {
+        return new TraceGenerator(
+                Long.parseLong(option(options, "seed", "1")),
+                Integer.parseInt(option(options, "apps", "150")),
+                Integer.parseInt(option(options, "days", "7")),
+                Integer.parseInt(option(options, "unlocks", "120")));
+    }
+
+    private static long directorySize(File directory) {
+        long size = 0;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                size += file.length();
+            }
+        }
+        return size;
+    }
+
+    private static long maxEvents(Map<String, String> options) {
+        return Long.parseLong(option(options, "max-events", String.valueOf(Long.MAX_VALUE)));
+    }
+
+    private static void resetPeakHeap() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Sum of per-pool heap peaks (an upper bound of the real peak)
+     */
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            String name = args[i].substring(2);
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for --" + name);
+            }
+            options.put(name, args[++i]);
+        }
+        return Collections.unmodifiableMap(options);
+    }
+
+    private static String option(Map<String, String> options, String name, String defaultValue) {
+        String value = options.get(name);
+        return value != null ? value : defaultValue;
+    }
+
+    private static void usage() {
+        System.out.println("Usage:");
+        System.out.println("  generate --out FILE|DIR [--format trace|journal] [--seed N] [--apps N] [--days N] [--unlocks N] [--max-events N]");
+        System.out.println("  replay [--trace FILE | --seed N --apps N --days N --unlocks N --max-events N]");
+        System.out.println("         [--sink memory|sqlite|none] [--db FILE] [--batch N] [--min-duration MS]");
+        System.out.println("  resessionize --journal DIR [--sink memory|sqlite|none] [--db FILE] [--batch N] [--min-duration MS]");
+    }
+}
@@ -9,33 +9,43 @@ import android.content.DialogInterface;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
-import android.graphics.drawable.Drawable;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.text.Editable;
 import android.text.TextWatcher;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
-import android.widget.BaseAdapter;
 import android.widget.Button;
 import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
-import android.widget.ListView;
 import android.widget.ScrollView;
 import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.recyclerview.widget.ConcatAdapter;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.aware.plugin.app_usage.core.AppFilterMatcher;
+
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Activity for managing app blacklist
@@ -43,20 +53,35 @@ import java.util.Set;
  */
 public class AppBlacklistActivity extends Activity {
 
-    private ListView appListView;
+    private RecyclerView appListView;
+    private LinearLayout headerView;
     private AppListAdapter adapter;
-    private List<AppInfo> appList;
-    private List<AppInfo> filteredAppList;
+    private final AppSelectionModel selectionModel = new AppSelectionModel();
     private Set<String> selectedApps;
     private EditText searchEditText;
     private Spinner sortSpinner;
     private TextView selectedAppsDisplay;
     private boolean isWhitelistMode;
+    private String pendingQuery = "";
+    private static final long SEARCH_DEBOUNCE_MS = 150;
+
+    // Background catalog loading
+    private ExecutorService catalogExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, AppInfo> appsByPackage = new HashMap<>();
+    private boolean isCatalogLoaded = false;
+    private static final int FIRST_BATCH_SIZE = 20;  // about one screenful of rows
+    private static final int BATCH_SIZE = 100;
+    private static final long BATCH_TIME_BUDGET_MS = 16; // one frame
+
+    // Lazy icon loading for visible rows
+    private AppIconLoader iconLoader;
+    private static final int ICON_SIZE_PX = 64;
     
     // Sort options
-    private static final int SORT_BY_NAME = 0;
-    private static final int SORT_BY_INSTALL_TIME = 1;
-    private int currentSortOption = SORT_BY_NAME;
+    private static final int SORT_BY_NAME = AppSelectionModel.ORDER_BY_NAME;
+    private static final int SORT_BY_INSTALL_TIME = AppSelectionModel.ORDER_BY_INSTALL_TIME;
+    private static final int SORT_BY_USAGE = AppSelectionModel.ORDER_BY_USAGE;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -78,11 +103,15 @@ public class AppBlacklistActivity extends Activity {
         // Load current app list
         selectedApps = com.aware.plugin.app_usage.Settings.getAppList(this);
         
-        // Load all apps and create adapter
-        loadInstalledApps();
-        filteredAppList = new ArrayList<>(appList);
+        // Create adapter, then load installed apps in the background
+        iconLoader = new AppIconLoader(this, ICON_SIZE_PX);
         adapter = new AppListAdapter();
-        appListView.setAdapter(adapter);
+        ConcatAdapter.Config config = new ConcatAdapter.Config.Builder()
+                .setStableIdMode(ConcatAdapter.Config.StableIdMode.ISOLATED_STABLE_IDS)
+                .build();
+        appListView.setAdapter(new ConcatAdapter(config, new HeaderAdapter(), adapter));
+        loadInstalledApps();
+        loadUsageTotals();
         
         // Setup search functionality
         setupSearch();
@@ -102,17 +131,17 @@ public class AppBlacklistActivity extends Activity {
         mainLayout.setOrientation(LinearLayout.VERTICAL);
         mainLayout.setPadding(16, 16, 16, 16);
         
-        // Create ListView first
-        appListView = new ListView(this);
+        // Create RecyclerView first
+        appListView = new RecyclerView(this);
+        appListView.setLayoutManager(new LinearLayoutManager(this));
         LinearLayout.LayoutParams listParams = new LinearLayout.LayoutParams(
                 LinearLayout.LayoutParams.MATCH_PARENT,
                 0, 1.0f
         );
         appListView.setLayoutParams(listParams);
         
-        // Create header view that contains all the controls
-        LinearLayout headerView = createHeaderView();
-        appListView.addHeaderView(headerView);
+        // Create header view that contains all the controls (shown as the first row)
+        headerView = createHeaderView();
         
         mainLayout.addView(appListView);
         
@@ -223,7 +252,7 @@ public class AppBlacklistActivity extends Activity {
         ArrayAdapter<String> spinnerAdapter = new ArrayAdapter<>(
                 this, 
                 android.R.layout.simple_spinner_item,
-                new String[]{"Sort by Name", "Sort by Install Time"}
+                new String[]{"Sort by Name", "Sort by Install Time", "Sort by Most Used (7 days)"}
         );
         spinnerAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         sortSpinner.setAdapter(spinnerAdapter);
@@ -349,6 +378,13 @@ public class AppBlacklistActivity extends Activity {
     /**
      * Setup search functionality
      */
+    private final Runnable debouncedFilter = new Runnable() {
+        @Override
+        public void run() {
+            filterApps(pendingQuery);
+        }
+    };
+
     private void setupSearch() {
         searchEditText.addTextChangedListener(new TextWatcher() {
             @Override
@@ -356,7 +392,10 @@ public class AppBlacklistActivity extends Activity {
 
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                filterApps(s.toString().toLowerCase(Locale.ROOT));
+                // Debounce: filter once typing pauses
+                pendingQuery = s.toString();
+                mainHandler.removeCallbacks(debouncedFilter);
+                mainHandler.postDelayed(debouncedFilter, SEARCH_DEBOUNCE_MS);
             }
 
             @Override
@@ -371,8 +410,8 @@ public class AppBlacklistActivity extends Activity {
         sortSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
-                currentSortOption = position;
-                sortAndRefreshApps();
+                selectionModel.setSortOption(position);
+                refreshApps();
             }
 
             @Override
@@ -384,77 +423,28 @@ public class AppBlacklistActivity extends Activity {
      * Filter apps based on search query
      */
     private void filterApps(String query) {
-        filteredAppList.clear();
-        
-        if (query.isEmpty()) {
-            filteredAppList.addAll(appList);
-        } else {
-            for (AppInfo app : appList) {
-                if (app.appName.toLowerCase(Locale.ROOT).contains(query) || 
-                    app.packageName.toLowerCase(Locale.ROOT).contains(query)) {
-                    filteredAppList.add(app);
-                }
-            }
-        }
-        
-        sortAndRefreshApps();
+        // Narrowing of the previous results is handled by the selection model
+        selectionModel.setQuery(query);
+        refreshApps();
     }
     
     /**
-     * Sort apps and refresh the list
+     * Refresh the list from the selection model (already grouped and ordered)
+     * Rows are snapshotted and diffed against the displayed list on a background thread,
+     * so only rows that moved or changed are rebound
      */
-    private void sortAndRefreshApps() {
-        // Separate selected and unselected apps
-        List<AppInfo> selectedApps = new ArrayList<>();
-        List<AppInfo> unselectedApps = new ArrayList<>();
-        
-        for (AppInfo app : filteredAppList) {
-            if (app.isSelected) {
-                selectedApps.add(app);
-            } else {
-                unselectedApps.add(app);
-            }
+    private void refreshApps() {
+        List<AppInfo> visibleApps = selectionModel.getVisibleApps();
+        List<AppRow> rows = new ArrayList<>(visibleApps.size());
+        for (AppInfo app : visibleApps) {
+            rows.add(new AppRow(app, selectionModel.isSelected(app)));
         }
-        
-        // Sort each group
-        Comparator<AppInfo> comparator = getComparator();
-        Collections.sort(selectedApps, comparator);
-        Collections.sort(unselectedApps, comparator);
-        
-        // Combine: selected apps first, then unselected
-        filteredAppList.clear();
-        filteredAppList.addAll(selectedApps);
-        filteredAppList.addAll(unselectedApps);
-        
-        adapter.notifyDataSetChanged();
+        adapter.submitList(rows);
         
         // Update selected apps display
         updateSelectedAppsDisplay();
     }
     
-    /**
-     * Get comparator based on current sort option
-     */
-    private Comparator<AppInfo> getComparator() {
-        switch (currentSortOption) {
-            case SORT_BY_INSTALL_TIME:
-                return new Comparator<AppInfo>() {
-                    @Override
-                    public int compare(AppInfo a, AppInfo b) {
-                        return Long.compare(b.installTime, a.installTime); // Newest first
-                    }
-                };
-            case SORT_BY_NAME:
-            default:
-                return new Comparator<AppInfo>() {
-                    @Override
-                    public int compare(AppInfo a, AppInfo b) {
-                        return a.appName.compareToIgnoreCase(b.appName);
-                    }
-                };
-        }
-    }
-    
     /**
      * Copy selected apps list to clipboard
      */
@@ -481,33 +471,13 @@ public class AppBlacklistActivity extends Activity {
      * Update the selected apps display at the bottom of the screen
      */
     private void updateSelectedAppsDisplay() {
-        List<String> selectedPackages = new ArrayList<>();
-        
-        // Collect selected app package names
-        for (AppInfo app : appList) {
-            if (app.isSelected) {
-                selectedPackages.add(app.packageName);
-            }
-        }
+        // Sorted, comma-separated text is maintained by the selection model
+        String displayText = selectionModel.getSelectedPackagesText();
         
         // Update display text
-        if (selectedPackages.isEmpty()) {
+        if (displayText.isEmpty()) {
             selectedAppsDisplay.setText("No apps selected");
         } else {
-            // Sort packages alphabetically for consistent display
-            Collections.sort(selectedPackages);
-            
-            StringBuilder sb = new StringBuilder();
-            boolean first = true;
-            for (String packageName : selectedPackages) {
-                if (!first) {
-                    sb.append(",");
-                }
-                sb.append(packageName);
-                first = false;
-            }
-            
-            String displayText = sb.toString();
             selectedAppsDisplay.setText(displayText);
         }
     }
@@ -522,159 +492,376 @@ public class AppBlacklistActivity extends Activity {
         Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        // Stop background catalog loading
+        if (catalogExecutor != null) {
+            catalogExecutor.shutdownNow();
+        }
+        mainHandler.removeCallbacksAndMessages(null);
+        if (iconLoader != null) {
+            iconLoader.shutdown();
+        }
+    }
+
     /**
-     * Load all installed applications
+     * Load recent usage totals (one aggregate query, cached) for the "most used" sort
      */
-    private void loadInstalledApps() {
-        PackageManager pm = getPackageManager();
-        List<ApplicationInfo> installedApps = pm.getInstalledApplications(PackageManager.GET_META_DATA);
-        
-        appList = new ArrayList<>();
-        
-        for (ApplicationInfo appInfo : installedApps) {
-            try {
-                String packageName = appInfo.packageName;
-                String appName = pm.getApplicationLabel(appInfo).toString();
-                Drawable appIcon = pm.getApplicationIcon(appInfo);
-                boolean isSystemApp = (appInfo.flags & ApplicationInfo.FLAG_SYSTEM) != 0;
-                
-                // Let user control all apps including keyboards and system UI
-                // No automatic filtering
-                
-                // Get install time
-                long installTime = 0;
-                try {
-                    PackageInfo packageInfo = pm.getPackageInfo(packageName, 0);
-                    installTime = packageInfo.firstInstallTime;
-                } catch (Exception e) {
-                    installTime = 0;
+    private void loadUsageTotals() {
+        UsageTotalsCache.load(this, new UsageTotalsCache.Listener() {
+            @Override
+            public void onUsageTotals(Map<String, Double> totals) {
+                if (isFinishing()) {
+                    return;
+                }
+                selectionModel.setUsageTotals(totals);
+                if (selectionModel.getSortOption() == SORT_BY_USAGE) {
+                    refreshApps();
                 }
-                
-                AppInfo app = new AppInfo(packageName, appName, appIcon, isSystemApp, installTime);
-                app.isSelected = selectedApps.contains(packageName);
-                appList.add(app);
-                
-            } catch (Exception e) {
-                // Skip apps that can't be loaded
             }
-        }
+        });
+    }
+
+    /**
+     * Load all installed applications on a background thread
+     * The persistent catalog is shown first; then only new or updated packages are reloaded,
+     * published in batches: the first screenful within a frame budget, then larger chunks
+     */
+    private void loadInstalledApps() {
+        final PackageManager pm = getPackageManager();
+        final AppCatalogCache catalogCache = new AppCatalogCache(this);
         
-        // Initial sort by name
-        Collections.sort(appList, getComparator());
+        catalogExecutor = Executors.newSingleThreadExecutor();
+        catalogExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Render the cached catalog immediately
+                Map<String, AppCatalogCache.Entry> cached = catalogCache.read();
+                if (!cached.isEmpty()) {
+                    List<AppInfo> cachedApps = new ArrayList<>(cached.size());
+                    for (AppCatalogCache.Entry entry : cached.values()) {
+                        cachedApps.add(new AppInfo(entry));
+                    }
+                    publishApps(cachedApps, Collections.<String>emptySet(), false);
+                }
+
+                // One call returns application info, install and update times for every package
+                List<PackageInfo> installedPackages = pm.getInstalledPackages(0);
+
+                List<AppCatalogCache.Entry> catalog = new ArrayList<>(installedPackages.size());
+                Set<String> removedPackages = new HashSet<>(cached.keySet());
+                boolean isCatalogChanged = false;
+
+                List<AppInfo> batch = new ArrayList<>();
+                int batchLimit = FIRST_BATCH_SIZE;
+                long batchStart = SystemClock.uptimeMillis();
+
+                for (PackageInfo packageInfo : installedPackages) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    removedPackages.remove(packageInfo.packageName);
+
+                    // Reuse the cached row while the package has not been updated
+                    AppCatalogCache.Entry entry = cached.get(packageInfo.packageName);
+                    if (entry != null && entry.lastUpdateTime == packageInfo.lastUpdateTime) {
+                        catalog.add(entry);
+                        continue;
+                    }
+
+                    ApplicationInfo appInfo = packageInfo.applicationInfo;
+                    if (appInfo == null) {
+                        continue;
+                    }
+
+                    try {
+                        String appName = pm.getApplicationLabel(appInfo).toString();
+                        boolean isSystemApp = (appInfo.flags & ApplicationInfo.FLAG_SYSTEM) != 0;
+                        
+                        // Let user control all apps including keyboards and system UI
+                        // No automatic filtering
+                        
+                        entry = new AppCatalogCache.Entry(packageInfo.packageName, appName, isSystemApp,
+                                packageInfo.firstInstallTime, packageInfo.lastUpdateTime);
+                        catalog.add(entry);
+                        batch.add(new AppInfo(entry));
+                        isCatalogChanged = true;
+                    } catch (Exception e) {
+                        // Skip apps that can't be loaded
+                    }
+
+                    if (batch.size() >= batchLimit || SystemClock.uptimeMillis() - batchStart >= BATCH_TIME_BUDGET_MS) {
+                        publishApps(batch, Collections.<String>emptySet(), false);
+                        batch = new ArrayList<>();
+                        batchLimit = BATCH_SIZE;
+                        batchStart = SystemClock.uptimeMillis();
+                    }
+                }
+
+                publishApps(batch, removedPackages, true);
+
+                if (isCatalogChanged || !removedPackages.isEmpty()) {
+                    catalogCache.write(catalog);
+                }
+            }
+        });
+    }
+
+    /**
+     * Hand a batch of loaded apps to the UI thread
+     * Apps already shown (from the cached catalog) are updated in place; removed packages are dropped
+     */
+    private void publishApps(final List<AppInfo> batch, final Set<String> removedPackages, final boolean isLast) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (isFinishing()) {
+                    return;
+                }
+
+                List<AppInfo> newApps = new ArrayList<>(batch.size());
+                boolean isUpdated = false;
+                for (AppInfo app : batch) {
+                    AppInfo existing = appsByPackage.get(app.packageName);
+                    if (existing != null) {
+                        existing.appName = app.appName;
+                        existing.searchText = app.searchText;
+                        existing.isSystemApp = app.isSystemApp;
+                        existing.installTime = app.installTime;
+                        isUpdated = true;
+                        continue;
+                    }
+                    appsByPackage.put(app.packageName, app);
+                    newApps.add(app);
+                }
+
+                selectionModel.addApps(newApps, selectedApps);
+                if (isUpdated) {
+                    selectionModel.appsUpdated();
+                }
+
+                if (!removedPackages.isEmpty()) {
+                    selectionModel.removeApps(removedPackages);
+                    appsByPackage.keySet().removeAll(removedPackages);
+                }
+
+                if (isLast) {
+                    isCatalogLoaded = true;
+                }
+
+                refreshApps();
+            }
+        });
     }
-    
 
     /**
      * Save current app list selection
      */
     private void saveAppList() {
-        // Clear current app list
-        Set<String> currentAppList = com.aware.plugin.app_usage.Settings.getAppList(this);
-        for (String pkg : new ArrayList<>(currentAppList)) {
-            com.aware.plugin.app_usage.Settings.removeFromAppList(this, pkg);
-        }
-        
-        // Add newly selected apps to app list
-        for (AppInfo app : appList) {
-            if (app.isSelected) {
-                com.aware.plugin.app_usage.Settings.addToAppList(this, app.packageName);
+        // Keep wildcard rules and apps not loaded yet (not shown as rows), then collect newly selected apps
+        Set<String> newAppList = new HashSet<>();
+        for (String rule : selectedApps) {
+            if (AppFilterMatcher.isPattern(rule) || (!isCatalogLoaded && !appsByPackage.containsKey(rule))) {
+                newAppList.add(rule);
             }
         }
-        
+        newAppList.addAll(selectionModel.getSelectedPackages());
+
+        // Replace the stored list in a single write
+        boolean changed = com.aware.plugin.app_usage.Settings.setAppList(this, newAppList);
+
         // 데이터베이스에 변경 사항 저장
         com.aware.plugin.app_usage.Settings.saveFilterSettingsToDatabase(this);
+
+        // 실행 중인 플러그인에 새 앱 리스트 즉시 적용
+        if (changed) {
+            Plugin.reconfigure(this);
+        }
     }
 
     /**
-     * Adapter for app list
+     * Single-row adapter that shows the controls header above the app rows
      */
-    private class AppListAdapter extends BaseAdapter {
+    private class HeaderAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+        HeaderAdapter() {
+            setHasStableIds(true);
+        }
 
         @Override
-        public int getCount() {
-            return filteredAppList.size();
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            headerView.setLayoutParams(new RecyclerView.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+            return new RecyclerView.ViewHolder(headerView) {};
         }
 
         @Override
-        public AppInfo getItem(int position) {
-            return filteredAppList.get(position);
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return 1;
         }
 
         @Override
         public long getItemId(int position) {
-            return position;
+            return 0;
+        }
+    }
+
+    /**
+     * Adapter for app list
+     * Diffing runs on a background thread (AsyncListDiffer); a selection-only change is bound as a payload
+     * so the row just flips its checkbox instead of reloading name and icon
+     */
+    private class AppListAdapter extends ListAdapter<AppRow, ViewHolder> {
+
+        AppListAdapter() {
+            super(AppRow.DIFF_CALLBACK);
+            setHasStableIds(true);
         }
 
         @Override
-        public View getView(int position, View convertView, ViewGroup parent) {
-            View view = convertView;
-            ViewHolder holder;
-
-            if (view == null) {
-                view = LayoutInflater.from(AppBlacklistActivity.this).inflate(
-                    android.R.layout.simple_list_item_multiple_choice, parent, false);
-                holder = new ViewHolder();
-                holder.icon = new ImageView(AppBlacklistActivity.this);
-                holder.name = new TextView(AppBlacklistActivity.this);
-                holder.packageName = new TextView(AppBlacklistActivity.this);
-                holder.checkBox = new CheckBox(AppBlacklistActivity.this);
-                
-                // Create custom layout
-                view = createCustomView(holder);
-                view.setTag(holder);
-            } else {
-                holder = (ViewHolder) view.getTag();
-            }
+        public long getItemId(int position) {
+            return getItem(position).app.index;
+        }
+
+        @Override
+        public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            final ViewHolder holder = new ViewHolder(
+                    new ImageView(AppBlacklistActivity.this),
+                    new TextView(AppBlacklistActivity.this),
+                    new TextView(AppBlacklistActivity.this),
+                    new CheckBox(AppBlacklistActivity.this));
 
-            final AppInfo app = getItem(position);
-            
-            holder.icon.setImageDrawable(app.appIcon);
-            holder.name.setText(app.appName);
-            holder.packageName.setText(app.packageName);
-            
-            // Set checkbox state
-            holder.checkBox.setChecked(app.isSelected);
-            
             // Handle checkbox clicks
             holder.checkBox.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View v) {
-                    app.isSelected = ((CheckBox) v).isChecked();
-                    // Re-sort to move selected items to top
-                    sortAndRefreshApps();
+                    AppInfo app = holder.boundApp;
+                    if (app == null) return;
+                    if (((CheckBox) v).isChecked() != selectionModel.isSelected(app)) {
+                        // Moves only this row to the selected/unselected group
+                        selectionModel.toggle(app);
+                    }
+                    refreshApps();
                 }
             });
-            
+
             // Handle row clicks
-            view.setOnClickListener(new View.OnClickListener() {
+            holder.itemView.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View v) {
-                    ViewHolder h = (ViewHolder) v.getTag();
-                    app.isSelected = !app.isSelected;
-                    h.checkBox.setChecked(app.isSelected);
-                    // Re-sort to move selected items to top
-                    sortAndRefreshApps();
+                    AppInfo app = holder.boundApp;
+                    if (app == null) return;
+                    // Moves only this row to the selected/unselected group
+                    selectionModel.toggle(app);
+                    holder.checkBox.setChecked(selectionModel.isSelected(app));
+                    refreshApps();
                 }
             });
 
-            return view;
+            return holder;
         }
-        
+
+        @Override
+        public void onBindViewHolder(ViewHolder holder, int position) {
+            AppRow row = getItem(position);
+            holder.boundApp = row.app;
+            iconLoader.load(row.packageName, holder.icon);
+            holder.name.setText(row.appName);
+            holder.packageName.setText(row.packageName);
+            holder.checkBox.setChecked(row.isSelected);
+        }
+
+        @Override
+        public void onBindViewHolder(ViewHolder holder, int position, List<Object> payloads) {
+            if (payloads.isEmpty()) {
+                onBindViewHolder(holder, position);
+                return;
+            }
+            // Only the selection changed
+            AppRow row = getItem(position);
+            holder.boundApp = row.app;
+            holder.checkBox.setChecked(row.isSelected);
+        }
+    }
+
+    /**
+     * Immutable snapshot of a displayed row, compared by DiffUtil
+     * AppInfo objects are updated in place while the catalog loads, so the displayed values are copied here
+     */
+    private static final class AppRow {
+        static final Object PAYLOAD_SELECTION = new Object();
+
+        static final DiffUtil.ItemCallback<AppRow> DIFF_CALLBACK = new DiffUtil.ItemCallback<AppRow>() {
+            @Override
+            public boolean areItemsTheSame(AppRow oldRow, AppRow newRow) {
+                return oldRow.app.index == newRow.app.index;
+            }
+
+            @Override
+            public boolean areContentsTheSame(AppRow oldRow, AppRow newRow) {
+                return oldRow.isSelected == newRow.isSelected && oldRow.appName.equals(newRow.appName);
+            }
+
+            @Override
+            public Object getChangePayload(AppRow oldRow, AppRow newRow) {
+                return oldRow.appName.equals(newRow.appName) ? PAYLOAD_SELECTION : null;
+            }
+        };
+
+        final AppInfo app;
+        final String appName;
+        final String packageName;
+        final boolean isSelected;
+
+        AppRow(AppInfo app, boolean isSelected) {
+            this.app = app;
+            this.appName = app.appName;
+            this.packageName = app.packageName;
+            this.isSelected = isSelected;
+        }
+    }
+
+    /**
+     * ViewHolder pattern for efficient list scrolling
+     */
+    private static class ViewHolder extends RecyclerView.ViewHolder {
+        final ImageView icon;
+        final TextView name;
+        final TextView packageName;
+        final CheckBox checkBox;
+        AppInfo boundApp;
+
+        ViewHolder(ImageView icon, TextView name, TextView packageName, CheckBox checkBox) {
+            super(createRowView(icon, name, packageName, checkBox));
+            this.icon = icon;
+            this.name = name;
+            this.packageName = packageName;
+            this.checkBox = checkBox;
+        }
+
         /**
          * Create custom view for app list item
          */
-        private View createCustomView(ViewHolder holder) {
+        private static View createRowView(ImageView icon, TextView name, TextView packageName, CheckBox checkBox) {
             // Create a horizontal linear layout
-            android.widget.LinearLayout layout = new android.widget.LinearLayout(AppBlacklistActivity.this);
+            android.widget.LinearLayout layout = new android.widget.LinearLayout(icon.getContext());
             layout.setOrientation(android.widget.LinearLayout.HORIZONTAL);
             layout.setPadding(16, 8, 16, 8);
+            layout.setLayoutParams(new RecyclerView.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
             
             // App icon
-            holder.icon.setLayoutParams(new android.widget.LinearLayout.LayoutParams(64, 64));
-            layout.addView(holder.icon);
+            icon.setLayoutParams(new android.widget.LinearLayout.LayoutParams(ICON_SIZE_PX, ICON_SIZE_PX));
+            layout.addView(icon);
             
             // Text container
-            android.widget.LinearLayout textLayout = new android.widget.LinearLayout(AppBlacklistActivity.this);
+            android.widget.LinearLayout textLayout = new android.widget.LinearLayout(icon.getContext());
             textLayout.setOrientation(android.widget.LinearLayout.VERTICAL);
             textLayout.setPadding(16, 0, 0, 0);
             android.widget.LinearLayout.LayoutParams textParams = new android.widget.LinearLayout.LayoutParams(
@@ -682,36 +869,26 @@ public class AppBlacklistActivity extends Activity {
             textLayout.setLayoutParams(textParams);
             
             // App name
-            holder.name.setTextSize(16);
-            holder.name.setTextColor(0xFF000000);
-            textLayout.addView(holder.name);
+            name.setTextSize(16);
+            name.setTextColor(0xFF000000);
+            textLayout.addView(name);
             
             // Package name
-            holder.packageName.setTextSize(12);
-            holder.packageName.setTextColor(0xFF666666);
-            textLayout.addView(holder.packageName);
+            packageName.setTextSize(12);
+            packageName.setTextColor(0xFF666666);
+            textLayout.addView(packageName);
             
             layout.addView(textLayout);
             
             // Checkbox
-            holder.checkBox.setLayoutParams(new android.widget.LinearLayout.LayoutParams(
+            checkBox.setLayoutParams(new android.widget.LinearLayout.LayoutParams(
                 android.widget.LinearLayout.LayoutParams.WRAP_CONTENT,
                 android.widget.LinearLayout.LayoutParams.WRAP_CONTENT));
-            layout.addView(holder.checkBox);
+            layout.addView(checkBox);
             
             return layout;
         }
     }
-
-    /**
-     * ViewHolder pattern for efficient list scrolling
-     */
-    private static class ViewHolder {
-        ImageView icon;
-        TextView name;
-        TextView packageName;
-        CheckBox checkBox;
-    }
     
     /**
      * Show confirmation dialog for system apps bulk selection
@@ -745,14 +922,15 @@ public class AppBlacklistActivity extends Activity {
      * Select/deselect all system apps based on current mode
      */
     private void selectAllSystemApps() {
-        for (AppInfo app : appList) {
-            if (app.isSystemApp) {
-                app.isSelected = true;
+        selectionModel.setSelected(new AppSelectionModel.Predicate() {
+            @Override
+            public boolean test(AppInfo app) {
+                return app.isSystemApp;
             }
-        }
+        }, true);
         
         // Refresh the list to show changes
-        sortAndRefreshApps();
+        refreshApps();
         
         String message = isWhitelistMode ? 
             "All system apps selected for inclusion" : 
@@ -764,12 +942,10 @@ public class AppBlacklistActivity extends Activity {
      * Select all apps in the current filtered list
      */
     private void selectAllApps() {
-        for (AppInfo app : appList) {
-            app.isSelected = true;
-        }
+        selectionModel.setSelected(null, true);
         
         // Refresh the list to show changes
-        sortAndRefreshApps();
+        refreshApps();
         
         Toast.makeText(this, "All apps selected", Toast.LENGTH_SHORT).show();
     }
@@ -778,12 +954,10 @@ public class AppBlacklistActivity extends Activity {
      * Deselect all apps
      */
     private void deselectAllApps() {
-        for (AppInfo app : appList) {
-            app.isSelected = false;
-        }
+        selectionModel.setSelected(null, false);
         
         // Refresh the list to show changes
-        sortAndRefreshApps();
+        refreshApps();
         
         Toast.makeText(this, "All apps deselected", Toast.LENGTH_SHORT).show();
     }
@@ -808,22 +982,15 @@ public class AppBlacklistActivity extends Activity {
                 .setPositiveButton("Reload", new DialogInterface.OnClickListener() {
                     @Override
                     public void onClick(DialogInterface dialog, int which) {
-                        // Clear current selection
-                        for (AppInfo app : appList) {
-                            app.isSelected = false;
-                        }
-                        
                         // Load from JSON
                         com.aware.plugin.app_usage.Settings.setAppListFromString(AppBlacklistActivity.this, appListFromConfig);
                         
-                        // Update UI selection state
-                        Set<String> newSelectedApps = com.aware.plugin.app_usage.Settings.getAppList(AppBlacklistActivity.this);
-                        for (AppInfo app : appList) {
-                            app.isSelected = newSelectedApps.contains(app.packageName);
-                        }
+                        // Replace UI selection state
+                        selectedApps = com.aware.plugin.app_usage.Settings.getAppList(AppBlacklistActivity.this);
+                        selectionModel.resetSelection(selectedApps);
                         
                         // Refresh display
-                        sortAndRefreshApps();
+                        refreshApps();
                         
                         Toast.makeText(AppBlacklistActivity.this, "Apps reloaded from JSON configuration", Toast.LENGTH_SHORT).show();
                     }
@@ -898,24 +1065,19 @@ public class AppBlacklistActivity extends Activity {
                     public void onClick(DialogInterface dialog, int which) {
                         String inputText = inputEditText.getText().toString().trim();
                         
-                        // Clear current selection
-                        for (AppInfo app : appList) {
-                            app.isSelected = false;
-                        }
-                        
                         if (!inputText.isEmpty()) {
                             // Process input text (validate and filter existing apps)
                             com.aware.plugin.app_usage.Settings.setAppListFromString(AppBlacklistActivity.this, inputText);
                             
-                            // Update UI selection state
-                            Set<String> newSelectedApps = com.aware.plugin.app_usage.Settings.getAppList(AppBlacklistActivity.this);
-                            for (AppInfo app : appList) {
-                                app.isSelected = newSelectedApps.contains(app.packageName);
-                            }
+                            // Replace UI selection state
+                            selectedApps = com.aware.plugin.app_usage.Settings.getAppList(AppBlacklistActivity.this);
+                        } else {
+                            selectedApps = new HashSet<>();
                         }
+                        selectionModel.resetSelection(selectedApps);
                         
                         // Refresh display
-                        sortAndRefreshApps();
+                        refreshApps();
                         
                         Toast.makeText(AppBlacklistActivity.this, "App list updated from direct input", Toast.LENGTH_SHORT).show();
                     }
@@ -933,23 +1095,23 @@ public class AppBlacklistActivity extends Activity {
     }
 
     /**
-     * App information data class
+     * App information data class (selection state lives in AppSelectionModel)
      */
-    private static class AppInfo {
+    static class AppInfo {
+        int index; // stable index assigned by AppSelectionModel
         String packageName;
         String appName;
-        Drawable appIcon;
         boolean isSystemApp;
-        boolean isSelected;
         long installTime;
+        double usageSeconds; // last 7 days, set by AppSelectionModel
+        String searchText; // normalized name + package, see AppSearchIndex
 
-        AppInfo(String packageName, String appName, Drawable appIcon, boolean isSystemApp, long installTime) {
-            this.packageName = packageName;
-            this.appName = appName;
-            this.appIcon = appIcon;
-            this.isSystemApp = isSystemApp;
-            this.isSelected = false;
-            this.installTime = installTime;
+        AppInfo(AppCatalogCache.Entry entry) {
+            this.packageName = entry.packageName;
+            this.appName = entry.appName;
+            this.isSystemApp = entry.isSystemApp;
+            this.installTime = entry.installTime;
+            this.searchText = AppSearchIndex.indexText(entry.appName, entry.packageName);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+package com.aware.plugin.app_usage;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Persistent app catalog for AppBlacklistActivity
+ * Stores label, system flag and install/update times per package in a compact binary file,
+ * so the list can be shown immediately and only packages whose lastUpdateTime changed are reloaded
+ */
+class AppCatalogCache {
+
+    private static final String TAG = "AWARE::AppCatalogCache";
+    private static final String FILE_NAME = "app_catalog.bin";
+    private static final int FORMAT_VERSION = 1;
+
+    private final AtomicFile file;
+
+    AppCatalogCache(Context context) {
+        this.file = new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    /**
+     * Read cached entries keyed by package name
+     * Returns an empty map if there is no cache, it is corrupt, or labels were cached for another locale
+     */
+    Map<String, Entry> read() {
+        Map<String, Entry> entries = new HashMap<>();
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(file.openRead()));
+            if (in.readInt() != FORMAT_VERSION || !currentLocale().equals(in.readUTF())) {
+                return entries;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Entry entry = new Entry(in.readUTF(), in.readUTF(), in.readBoolean(), in.readLong(), in.readLong());
+                entries.put(entry.packageName, entry);
+            }
+        } catch (FileNotFoundException e) {
+            // No cache yet
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable app catalog: " + e.getMessage());
+            entries.clear();
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Replace the cached catalog atomically
+     */
+    void write(Collection<Entry> entries) {
+        FileOutputStream stream = null;
+        try {
+            stream = file.startWrite();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(currentLocale());
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeUTF(entry.packageName);
+                out.writeUTF(entry.appName);
+                out.writeBoolean(entry.isSystemApp);
+                out.writeLong(entry.installTime);
+                out.writeLong(entry.lastUpdateTime);
+            }
+            out.flush();
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write app catalog: " + e.getMessage());
+            if (stream != null) {
+                file.failWrite(stream);
+            }
+        }
+    }
+
+    private static String currentLocale() {
+        return Locale.getDefault().toString();
+    }
+
+    /**
+     * Cached catalog row
+     */
+    static class Entry {
+        final String packageName;
+        final String appName;
+        final boolean isSystemApp;
+        final long installTime;
+        final long lastUpdateTime;
+
+        Entry(String packageName, String appName, boolean isSystemApp, long installTime, long lastUpdateTime) {
+            this.packageName = packageName;
+            this.appName = appName;
+            this.isSystemApp = isSystemApp;
+            this.installTime = installTime;
+            this.lastUpdateTime = lastUpdateTime;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.aware.plugin.app_usage;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Lazy icon loader for the app list
+ * Icons are decoded off the UI thread, only when a row is bound, into downscaled bitmaps
+ * kept in an LruCache sized from the device memory class
+ */
+class AppIconLoader {
+
+    // Fraction of the per-app memory class used for the icon cache
+    private static final int CACHE_MEMORY_DIVISOR = 16;
+    private static final int DECODE_THREADS = 2;
+
+    private final PackageManager packageManager;
+    private final LruCache<String, Bitmap> cache;
+    private final ExecutorService executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Drawable placeholder;
+    private final int iconSizePx;
+
+    AppIconLoader(Context context, int iconSizePx) {
+        this.packageManager = context.getPackageManager();
+        this.iconSizePx = iconSizePx;
+        this.placeholder = packageManager.getDefaultActivityIcon();
+
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int cacheBytes = activityManager.getMemoryClass() * 1024 * 1024 / CACHE_MEMORY_DIVISOR;
+        this.cache = new LruCache<String, Bitmap>(cacheBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+        this.executor = Executors.newFixedThreadPool(DECODE_THREADS);
+    }
+
+    /**
+     * Bind the icon of a package to a (possibly recycled) ImageView
+     * A pending request for a different package on the same view is cancelled
+     */
+    void load(final String packageName, final ImageView view) {
+        Object tag = view.getTag();
+        if (tag instanceof Request) {
+            Request previous = (Request) tag;
+            if (previous.packageName.equals(packageName) && !previous.isCancelled) {
+                return; // same icon already shown or on its way
+            }
+            previous.cancel();
+        }
+
+        Bitmap cached = cache.get(packageName);
+        final Request request = new Request(packageName);
+        view.setTag(request);
+        if (cached != null) {
+            view.setImageBitmap(cached);
+            return;
+        }
+
+        view.setImageDrawable(placeholder);
+        request.future = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (request.isCancelled) {
+                    return;
+                }
+                final Bitmap bitmap = decode(packageName);
+                if (bitmap == null) {
+                    return;
+                }
+                cache.put(packageName, bitmap);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!request.isCancelled && view.getTag() == request) {
+                            view.setImageBitmap(bitmap);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Cancel pending work and release the decode threads
+     */
+    void shutdown() {
+        executor.shutdownNow();
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+
+    /**
+     * Render the app icon into a bitmap of the row icon size
+     */
+    private Bitmap decode(String packageName) {
+        try {
+            Drawable drawable = packageManager.getApplicationIcon(packageName);
+            Bitmap bitmap = Bitmap.createBitmap(iconSizePx, iconSizePx, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+            drawable.setBounds(0, 0, iconSizePx, iconSizePx);
+            drawable.draw(canvas);
+            return bitmap;
+        } catch (PackageManager.NameNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Pending icon request attached to an ImageView
+     */
+    private static class Request {
+        final String packageName;
+        volatile boolean isCancelled;
+        Future<?> future;
+
+        Request(String packageName) {
+            this.packageName = packageName;
+        }
+
+        void cancel() {
+            isCancelled = true;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.aware.plugin.app_usage;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Search helpers for the app list
+ * Each app keeps a precomputed index text (lowercased, diacritic-folded name and package name),
+ * so a keystroke only runs indexOf over prebuilt strings instead of re-lowercasing every app
+ */
+final class AppSearchIndex {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{Mn}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final String[] NO_TERMS = new String[0];
+
+    private AppSearchIndex() {
+    }
+
+    /**
+     * Lowercase and strip diacritics ("Café" -> "cafe")
+     */
+    static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        if (isAscii(lower)) {
+            return lower;
+        }
+        return COMBINING_MARKS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    /**
+     * Build the index text of an app; name and package are separated so terms cannot match across them
+     */
+    static String indexText(String appName, String packageName) {
+        return normalize(appName) + '\n' + normalize(packageName);
+    }
+
+    /**
+     * Split a raw query into normalized terms; every term must occur in the index text
+     * Any word prefix of the name or package is a substring, so word-prefix queries match as well
+     */
+    static String[] queryTerms(String query) {
+        String normalized = normalize(query).trim();
+        if (normalized.isEmpty()) {
+            return NO_TERMS;
+        }
+        return WHITESPACE.split(normalized);
+    }
+
+    static boolean matches(String indexText, String[] terms) {
+        for (String term : terms) {
+            if (indexText.indexOf(term) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the results of the next query are a subset of the previous query's results
+     * True when the query only grew at the end, so filtering can narrow the previous result set
+     */
+    static boolean narrows(String previousQuery, String nextQuery) {
+        String previous = normalize(previousQuery).trim();
+        return !previous.isEmpty() && normalize(nextQuery).startsWith(previous);
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,378 @@
+package com.aware.plugin.app_usage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Selection and ordering state of the app management list
+ * Apps get stable indices; selection, search matches and removals are bitsets over those indices.
+ * Name, install-time and usage orders are kept presorted, so a refresh is a linear walk over one order
+ * and a checkbox toggle moves a single row between the selected and unselected groups.
+ */
+final class AppSelectionModel {
+
+    static final int ORDER_BY_NAME = 0;
+    static final int ORDER_BY_INSTALL_TIME = 1;
+    static final int ORDER_BY_USAGE = 2;
+    private static final int ORDER_COUNT = 3;
+
+    private final List<AppBlacklistActivity.AppInfo> apps = new ArrayList<>(); // by stable index
+    private final BitSet selected = new BitSet();
+    private final BitSet removed = new BitSet();
+    private final BitSet matching = new BitSet();
+
+    private final int[][] orders = new int[ORDER_COUNT][0];
+    private final int[][] ranks = new int[ORDER_COUNT][0];
+    private int sortOption = ORDER_BY_NAME;
+
+    // Recent usage seconds per package (see UsageTotalsCache); apps without usage count as 0
+    private Map<String, Double> usageTotals = Collections.emptyMap();
+
+    private String query = "";
+    private String[] queryTerms = new String[0];
+
+    // Displayed rows: selected group first, then unselected group, each in the current order
+    private final List<AppBlacklistActivity.AppInfo> visible = new ArrayList<>();
+    private int visibleSelectedCount = 0;
+
+    // Selected package names, sorted, with the comma-separated text cached until the selection changes
+    private final TreeSet<String> selectedPackages = new TreeSet<>();
+    private String selectedPackagesText = "";
+
+    /**
+     * Append newly loaded apps and merge them into the presorted orders
+     */
+    void addApps(Collection<AppBlacklistActivity.AppInfo> newApps, Collection<String> selectedSource) {
+        if (newApps.isEmpty()) return;
+
+        int firstIndex = apps.size();
+        for (AppBlacklistActivity.AppInfo app : newApps) {
+            app.index = apps.size();
+            app.usageSeconds = usageOf(app.packageName);
+            apps.add(app);
+            if (AppSearchIndex.matches(app.searchText, queryTerms)) {
+                matching.set(app.index);
+            }
+            if (selectedSource.contains(app.packageName)) {
+                setSelectedBit(app, true);
+            }
+        }
+
+        for (int order = 0; order < ORDER_COUNT; order++) {
+            mergeIntoOrder(order, firstIndex, apps.size());
+        }
+        rebuildVisible();
+    }
+
+    /**
+     * Re-sort after labels or install times of existing apps changed
+     */
+    void appsUpdated() {
+        for (int order = 0; order < ORDER_COUNT; order++) {
+            sortOrder(order);
+        }
+        for (int i = 0; i < apps.size(); i++) {
+            if (removed.get(i)) continue;
+            matching.set(i, AppSearchIndex.matches(apps.get(i).searchText, queryTerms));
+        }
+        rebuildVisible();
+    }
+
+    /**
+     * Drop uninstalled packages (their indices stay reserved)
+     */
+    void removeApps(Collection<String> packageNames) {
+        if (packageNames.isEmpty()) return;
+        for (int i = 0; i < apps.size(); i++) {
+            AppBlacklistActivity.AppInfo app = apps.get(i);
+            if (!removed.get(i) && packageNames.contains(app.packageName)) {
+                setSelectedBit(app, false);
+                removed.set(i);
+                matching.clear(i);
+            }
+        }
+        rebuildVisible();
+    }
+
+    /**
+     * Apply a search query; when it only extends the previous query, only previous matches are rechecked
+     */
+    void setQuery(String newQuery) {
+        String[] terms = AppSearchIndex.queryTerms(newQuery);
+        boolean narrow = AppSearchIndex.narrows(query, newQuery);
+        query = newQuery;
+        queryTerms = terms;
+
+        if (narrow) {
+            for (int i = matching.nextSetBit(0); i >= 0; i = matching.nextSetBit(i + 1)) {
+                if (!AppSearchIndex.matches(apps.get(i).searchText, terms)) {
+                    matching.clear(i);
+                }
+            }
+        } else {
+            matching.clear();
+            for (int i = 0; i < apps.size(); i++) {
+                if (!removed.get(i) && AppSearchIndex.matches(apps.get(i).searchText, terms)) {
+                    matching.set(i);
+                }
+            }
+        }
+        rebuildVisible();
+    }
+
+    void setSortOption(int option) {
+        if (option == sortOption) return;
+        sortOption = option;
+        rebuildVisible();
+    }
+
+    /**
+     * Apply per-package usage totals; only the usage order is re-sorted
+     */
+    void setUsageTotals(Map<String, Double> totals) {
+        usageTotals = totals;
+        for (AppBlacklistActivity.AppInfo app : apps) {
+            app.usageSeconds = usageOf(app.packageName);
+        }
+        sortOrder(ORDER_BY_USAGE);
+        if (sortOption == ORDER_BY_USAGE) {
+            rebuildVisible();
+        }
+    }
+
+    int getSortOption() {
+        return sortOption;
+    }
+
+    boolean isSelected(AppBlacklistActivity.AppInfo app) {
+        return selected.get(app.index);
+    }
+
+    /**
+     * Toggle one app and move only its row between the selected and unselected groups
+     */
+    void toggle(AppBlacklistActivity.AppInfo app) {
+        boolean nowSelected = !selected.get(app.index);
+        setSelectedBit(app, nowSelected);
+
+        if (!matching.get(app.index)) return;
+
+        int[] rank = ranks[sortOption];
+        int from = nowSelected
+                ? findInGroup(visibleSelectedCount, visible.size(), app.index, rank)
+                : findInGroup(0, visibleSelectedCount, app.index, rank);
+        if (from < 0) {
+            rebuildVisible();
+            return;
+        }
+        visible.remove(from);
+        if (nowSelected) {
+            int to = -findInGroup(0, visibleSelectedCount, app.index, rank) - 1;
+            visible.add(to, app);
+            visibleSelectedCount++;
+        } else {
+            visibleSelectedCount--;
+            int to = -findInGroup(visibleSelectedCount, visible.size(), app.index, rank) - 1;
+            visible.add(to, app);
+        }
+    }
+
+    /**
+     * Bulk selection change; returns the number of apps whose state changed
+     */
+    int setSelected(Predicate filter, boolean value) {
+        int changed = 0;
+        for (int i = 0; i < apps.size(); i++) {
+            if (removed.get(i) || selected.get(i) == value) continue;
+            AppBlacklistActivity.AppInfo app = apps.get(i);
+            if (filter == null || filter.test(app)) {
+                setSelectedBit(app, value);
+                changed++;
+            }
+        }
+        if (changed > 0) rebuildVisible();
+        return changed;
+    }
+
+    /**
+     * Replace the whole selection from a set of package names
+     */
+    void resetSelection(Collection<String> packageNames) {
+        selected.clear();
+        selectedPackages.clear();
+        for (int i = 0; i < apps.size(); i++) {
+            if (!removed.get(i) && packageNames.contains(apps.get(i).packageName)) {
+                setSelectedBit(apps.get(i), true);
+            }
+        }
+        selectedPackagesText = null;
+        rebuildVisible();
+    }
+
+    List<AppBlacklistActivity.AppInfo> getVisibleApps() {
+        return Collections.unmodifiableList(visible);
+    }
+
+    /**
+     * Selected package names of loaded apps, sorted
+     */
+    Collection<String> getSelectedPackages() {
+        return Collections.unmodifiableSet(selectedPackages);
+    }
+
+    /**
+     * Comma-separated selected package names, rebuilt only after the selection changed
+     */
+    String getSelectedPackagesText() {
+        if (selectedPackagesText == null) {
+            StringBuilder sb = new StringBuilder();
+            for (String packageName : selectedPackages) {
+                if (sb.length() > 0) sb.append(',');
+                sb.append(packageName);
+            }
+            selectedPackagesText = sb.toString();
+        }
+        return selectedPackagesText;
+    }
+
+    private void setSelectedBit(AppBlacklistActivity.AppInfo app, boolean value) {
+        if (selected.get(app.index) == value) return;
+        selected.set(app.index, value);
+        if (value) {
+            selectedPackages.add(app.packageName);
+        } else {
+            selectedPackages.remove(app.packageName);
+        }
+        selectedPackagesText = null;
+    }
+
+    /**
+     * Linear walk over the current order: selected matches first, then unselected matches
+     */
+    private void rebuildVisible() {
+        visible.clear();
+        int[] order = orders[sortOption];
+        for (int index : order) {
+            if (matching.get(index) && selected.get(index)) visible.add(apps.get(index));
+        }
+        visibleSelectedCount = visible.size();
+        for (int index : order) {
+            if (matching.get(index) && !selected.get(index)) visible.add(apps.get(index));
+        }
+    }
+
+    /**
+     * Binary search of an app within a group of visible rows ordered by rank
+     * Returns its position, or (-(insertion point) - 1) when absent
+     */
+    private int findInGroup(int from, int to, int index, int[] rank) {
+        int target = rank[index];
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midRank = rank[visible.get(mid).index];
+            if (midRank < target) {
+                low = mid + 1;
+            } else if (midRank > target) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Sort the new indices [from, to) and merge them with the existing order in one pass
+     */
+    private void mergeIntoOrder(int order, int from, int to) {
+        Comparator<Integer> comparator = comparator(order);
+        Integer[] added = new Integer[to - from];
+        for (int i = 0; i < added.length; i++) added[i] = from + i;
+        Arrays.sort(added, comparator);
+
+        int[] existing = orders[order];
+        int[] merged = new int[existing.length + added.length];
+        int e = 0;
+        int a = 0;
+        int m = 0;
+        while (e < existing.length && a < added.length) {
+            if (comparator.compare(existing[e], added[a]) <= 0) {
+                merged[m++] = existing[e++];
+            } else {
+                merged[m++] = added[a++];
+            }
+        }
+        while (e < existing.length) merged[m++] = existing[e++];
+        while (a < added.length) merged[m++] = added[a++];
+        setOrder(order, merged);
+    }
+
+    private void sortOrder(int order) {
+        Integer[] boxed = new Integer[apps.size()];
+        for (int i = 0; i < boxed.length; i++) boxed[i] = i;
+        Arrays.sort(boxed, comparator(order));
+        int[] sorted = new int[boxed.length];
+        for (int i = 0; i < boxed.length; i++) sorted[i] = boxed[i];
+        setOrder(order, sorted);
+    }
+
+    private double usageOf(String packageName) {
+        Double seconds = usageTotals.get(packageName);
+        return seconds != null ? seconds : 0;
+    }
+
+    private void setOrder(int order, int[] sorted) {
+        orders[order] = sorted;
+        int[] rank = new int[apps.size()];
+        for (int position = 0; position < sorted.length; position++) {
+            rank[sorted[position]] = position;
+        }
+        ranks[order] = rank;
+    }
+
+    private Comparator<Integer> comparator(int order) {
+        if (order == ORDER_BY_USAGE) {
+            return new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    int result = Double.compare(apps.get(b).usageSeconds, apps.get(a).usageSeconds); // Most used first
+                    if (result != 0) return result;
+                    result = apps.get(a).appName.compareToIgnoreCase(apps.get(b).appName);
+                    return result != 0 ? result : Integer.compare(a, b);
+                }
+            };
+        }
+        if (order == ORDER_BY_INSTALL_TIME) {
+            return new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    int result = Long.compare(apps.get(b).installTime, apps.get(a).installTime); // Newest first
+                    return result != 0 ? result : Integer.compare(a, b);
+                }
+            };
+        }
+        return new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int result = apps.get(a).appName.compareToIgnoreCase(apps.get(b).appName);
+                return result != 0 ? result : Integer.compare(a, b);
+            }
+        };
+    }
+
+    /**
+     * App predicate for bulk selection (kept local for older API levels)
+     */
+    interface Predicate {
+        boolean test(AppBlacklistActivity.AppInfo app);
+    }
+}
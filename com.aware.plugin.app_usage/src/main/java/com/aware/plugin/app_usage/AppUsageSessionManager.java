@@ -1,251 +1,166 @@
 package com.aware.plugin.app_usage;
 
-import android.app.usage.UsageEvents;
 import android.util.Log;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import com.aware.plugin.app_usage.core.ChunkedBackfill;
+import com.aware.plugin.app_usage.core.PipelineMetrics;
+import com.aware.plugin.app_usage.core.SessionEngine;
+import com.aware.plugin.app_usage.core.SessionJournal;
+import com.aware.plugin.app_usage.core.SessionSink;
+import com.aware.plugin.app_usage.core.TraceBuffer;
+import com.aware.plugin.app_usage.core.UsageEvent;
+
+import java.io.File;
+import java.io.IOException;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages app usage sessions with proper lifecycle handling
- * Handles ACTIVITY_RESUMED, ACTIVITY_PAUSED, screen events, and multi-window scenarios
+ * Thin Android adapter over the platform-free SessionEngine (com.aware.plugin.app_usage.core):
+ * closed sessions are saved through the Plugin, screen broadcasts are forwarded with the current time.
+ * Open sessions are journaled to a memory-mapped file, so a killed process can close them after restart.
  */
 public class AppUsageSessionManager {
-    
+
     private static final String TAG = "AWARE::SessionManager";
-    
+
     // Session configuration - NO MERGING, preserve raw usage patterns
     private static final long SESSION_MIN_DURATION = 1000; // 1 second minimum (very short sessions)
-    // REMOVED SESSION_TIMEOUT - No timeout to prevent session merging
-    // Every app open/close must be recorded as separate entry per requirements
-    
-    // Plugin reference for saving sessions
-    private final Plugin plugin;
-    
-    // Active sessions map: package name -> session info
-    private final Map<String, AppSession> activeSessions = new ConcurrentHashMap<>();
-    
-    // Removed: No session merging to preserve accurate usage patterns
-    
-    // Screen state
-    private boolean isScreenOn = true;
-    
-    public AppUsageSessionManager(Plugin plugin) {
-        this.plugin = plugin;
+
+    private static final String JOURNAL_FILE_NAME = "active_sessions.journal";
+
+    private final SessionEngine engine;
+    private SessionJournal journal;
+    // Unjournaled open sessions at the last warning, so a full journal is logged once, not per check
+    private int unjournaledSessions;
+    // Watermark of the previous process, handed once to the first check after a restore
+    private long pendingResumeTime;
+
+    public AppUsageSessionManager(final Plugin plugin) {
+        try {
+            journal = SessionJournal.open(new File(plugin.getFilesDir(), JOURNAL_FILE_NAME));
+        } catch (IOException e) {
+            Log.e(TAG, "Session journal unavailable, open sessions are lost if the process dies: " + e.getMessage());
+        }
+
+        this.engine = new SessionEngine(new SessionSink() {
+            @Override
+            public void onSession(String packageName, String appName, boolean isSystemApp,
+                                  long startTime, long endTime) {
+                // Opens and closes are traced by the engine; strings only for DEBUG
+                if (Plugin.DEBUG) Log.d(TAG, "Finalizing session: " + appName + " (" + (endTime - startTime) / 1000 + "s)");
+                // Save the session directly - NO MERGING to preserve accurate usage patterns
+                plugin.saveAppUsageSession(packageName, appName, isSystemApp, startTime, endTime);
+            }
+        }, SESSION_MIN_DURATION, PipelineMetrics.global(), TraceBuffer.global(), journal);
+
+        int restored = engine.restoreFromJournal();
+        if (restored > 0) {
+            pendingResumeTime = engine.getResumeTime();
+            Log.d(TAG, "Restored " + restored + " open sessions from the journal");
+        }
     }
-    
+
     /**
-     * Process list of usage events
+     * Time of the newest event processed before the process was killed, when open sessions were
+     * restored (0 otherwise); returned once, so only the first check reaches back for their end events
      */
-    public void processEvents(List<Plugin.UsageEventData> events) {
-        if (events.isEmpty()) return;
-        
-        // Sort events by timestamp
-        Collections.sort(events, (a, b) -> Long.compare(a.timestamp, b.timestamp));
-        
-        Log.d(TAG, "Processing " + events.size() + " events");
-        
-        for (Plugin.UsageEventData event : events) {
-            processEvent(event);
-        }
-        
-        // No cleanup needed - sessions end immediately on MOVE_TO_BACKGROUND
+    public long consumeResumeTime() {
+        long resumeTime = pendingResumeTime;
+        pendingResumeTime = 0;
+        return resumeTime;
     }
-    
+
     /**
-     * Process individual event
+     * Process list of usage events
      */
-    private void processEvent(Plugin.UsageEventData event) {
-        // Simple and accurate approach:
-        // MOVE_TO_FOREGROUND = App visible on screen = Start session
-        // MOVE_TO_BACKGROUND = App no longer visible = End session immediately
-        // SCREEN_NON_INTERACTIVE = Screen off = End all sessions immediately
-        // Multiple apps can be visible simultaneously (PIP + normal app)
-        
-        // Process screen events first as they affect all apps
-        if (event.eventType == 16) {
-            // SCREEN_NON_INTERACTIVE - Screen turned off
-            handleScreenOff();
-        } else if (event.eventType == 15) {
-            // SCREEN_INTERACTIVE - Screen turned on
-            handleScreenOn();
-        } else if (event.eventType == UsageEvents.Event.MOVE_TO_FOREGROUND) {
-            // App became visible - start session only if screen is on
-            handleAppVisible(event);
-        } else if (event.eventType == UsageEvents.Event.MOVE_TO_BACKGROUND) {
-            // App no longer visible - end session immediately
-            handleAppHidden(event);
-        }
-        // Ignore ACTIVITY_RESUMED/PAUSED - they're unreliable for visibility
+    public void processEvents(List<? extends UsageEvent> events) {
+        if (events.isEmpty()) return;
+
+        if (Plugin.DEBUG) Log.d(TAG, "Processing " + events.size() + " events");
+        engine.processEvents(events);
+        warnIfNotJournaled();
     }
-    
+
     /**
-     * Handle app becoming visible on screen
+     * Log when newly opened sessions found every journal slot in use (counted as SESSIONS_NOT_JOURNALED)
      */
-    private void handleAppVisible(Plugin.UsageEventData event) {
-        // IMPORTANT: Screen off should always end sessions completely
-        // If screen is off, don't start new sessions
-        if (!isScreenOn) {
-            Log.d(TAG, "Screen is off, ignoring app visible event: " + event.appName);
-            return;
-        }
-        
-        AppSession existingSession = activeSessions.get(event.packageName);
-        
-        if (existingSession != null) {
-            // Update existing session only if screen stayed on
-            existingSession.lastActivityTime = event.timestamp;
-            Log.d(TAG, "App visible (continuing): " + event.appName);
-        } else {
-            // Create new session - app became visible
-            AppSession newSession = new AppSession(
-                event.packageName,
-                event.appName,
-                event.isSystemApp,
-                event.timestamp
-            );
-            activeSessions.put(event.packageName, newSession);
-            Log.d(TAG, "App visible (new session): " + event.appName + " at " + new java.util.Date(event.timestamp));
+    private void warnIfNotJournaled() {
+        int unjournaled = engine.getUnjournaledSessionCount();
+        if (unjournaled > unjournaledSessions) {
+            Log.w(TAG, "Session journal full (" + SessionJournal.SLOT_COUNT + " slots): " + unjournaled
+                    + " open sessions are lost if the process dies");
         }
+        unjournaledSessions = unjournaled;
     }
-    
+
     /**
-     * Handle app no longer visible on screen - end session immediately
+     * Feed a chunked backfill of [start, end) into the sessions, in timestamp order
+     * Sessions spanning chunk boundaries are stitched because the engine state carries across chunks.
      */
-    private void handleAppHidden(Plugin.UsageEventData event) {
-        AppSession session = activeSessions.get(event.packageName);
-        if (session != null) {
-            // App is no longer visible - end session immediately
-            finalizeSession(session, event.timestamp);
-            activeSessions.remove(event.packageName);
-            long duration = event.timestamp - session.startTime;
-            Log.d(TAG, "App hidden, session ended: " + event.appName + 
-                       " (duration: " + duration / 1000 + "s)");
+    public long processBackfill(ChunkedBackfill backfill, long start, long end,
+                                ChunkedBackfill.ChunkLoader loader,
+                                ChunkedBackfill.ProgressListener progress) throws Exception {
+        try {
+            return backfill.run(start, end, loader, engine, progress);
+        } finally {
+            warnIfNotJournaled();
         }
     }
-    
+
     /**
      * Handle screen turning off
      */
     public void handleScreenOff() {
-        isScreenOn = false;
-        Log.d(TAG, "Screen off - finalizing all active sessions");
-        // Must finalize and clear all sessions when screen turns off
-        // This ensures accurate session boundaries matching user behavior
-        long endTime = System.currentTimeMillis();
-        finalizeAllSessions(endTime);
-        // Clear the map to ensure no sessions persist after screen off
-        activeSessions.clear();
+        if (Plugin.DEBUG) Log.d(TAG, "Screen off - finalizing all active sessions");
+        engine.screenOff(System.currentTimeMillis());
     }
-    
+
     /**
      * Handle screen turning on
      */
     public void handleScreenOn() {
-        isScreenOn = true;
-        Log.d(TAG, "Screen on");
+        engine.screenOn();
+        if (Plugin.DEBUG) Log.d(TAG, "Screen on");
     }
-    
+
     /**
      * Finalize all active sessions
      */
     public void finalizeAllActiveSessions() {
-        finalizeAllSessions(System.currentTimeMillis());
-    }
-    
-    /**
-     * Finalize all active sessions with specific end time
-     */
-    private void finalizeAllSessions(long endTime) {
-        List<String> toRemove = new ArrayList<>();
-        
-        for (Map.Entry<String, AppSession> entry : activeSessions.entrySet()) {
-            AppSession session = entry.getValue();
-            finalizeSession(session, endTime);
-            toRemove.add(entry.getKey());
-        }
-        
-        for (String packageName : toRemove) {
-            activeSessions.remove(packageName);
-        }
+        engine.closeAll(System.currentTimeMillis());
     }
-    
-    // REMOVED: cleanupOldSessions and shouldFinalizeSession methods
-    // Sessions now end immediately on MOVE_TO_BACKGROUND events
-    // No timeout-based cleanup to prevent session merging
-    
-    /**
-     * Finalize a session and save it
-     */
-    private void finalizeSession(AppSession session, long endTime) {
-        long duration = endTime - session.startTime;
-        
-        // Only save sessions that meet minimum duration
-        if (duration < SESSION_MIN_DURATION) {
-            Log.d(TAG, "Session too short, not saving: " + session.appName + " (" + duration + "ms)");
-            return;
-        }
-        
-        // Let user-controlled app_list handle all filtering
-        // No automatic system UI filtering in session manager
-        
-        Log.d(TAG, "Finalizing session: " + session.appName + 
-               " (" + duration / 1000 + "s)");
-        
-        // Save the session directly - NO MERGING to preserve accurate usage patterns
-        plugin.saveAppUsageSession(
-            session.packageName,
-            session.appName,
-            session.isSystemApp,
-            session.startTime,
-            endTime
-        );
-    }
-    
-    // Removed all session merging logic to preserve accurate usage patterns
-    
+
     /**
-     * App session information
+     * Release the journal file (after finalizeAllActiveSessions, when the plugin stops)
      */
-    private static class AppSession {
-        final String packageName;
-        final String appName;
-        final boolean isSystemApp;
-        final long startTime;
-        long lastActivityTime;
-        
-        AppSession(String packageName, String appName, boolean isSystemApp, long startTime) {
-            this.packageName = packageName;
-            this.appName = appName;
-            this.isSystemApp = isSystemApp;
-            this.startTime = startTime;
-            this.lastActivityTime = startTime;
+    public void close() {
+        if (journal == null) return;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to close session journal: " + e.getMessage());
         }
     }
-    
-    // Removed CompletedSessionInfo class - no merging needed
-    
+
     /**
      * Get current active sessions count (for debugging)
      */
     public int getActiveSessionsCount() {
-        return activeSessions.size();
+        return engine.getActiveSessionCount();
     }
-    
+
     /**
      * Get active session info (for debugging)
      */
     public Map<String, String> getActiveSessionsInfo() {
         Map<String, String> info = new HashMap<>();
-        for (Map.Entry<String, AppSession> entry : activeSessions.entrySet()) {
-            AppSession session = entry.getValue();
-            info.put(entry.getKey(), session.appName + " (started: " + new Date(session.startTime) + ")");
+        for (Map.Entry<String, Long> entry : engine.getActiveSessionStartTimes().entrySet()) {
+            info.put(entry.getKey(), "started: " + new Date(entry.getValue()));
         }
         return info;
     }
-}
\ No newline at end of file
+}
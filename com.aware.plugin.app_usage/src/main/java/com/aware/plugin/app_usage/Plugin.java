@@ -4,6 +4,7 @@ import android.app.AlarmManager;
 import android.app.AppOpsManager;
 import android.app.PendingIntent;
 import android.app.usage.UsageEvents;
+import android.app.usage.UsageStats;
 import android.app.usage.UsageStatsManager;
 import android.content.BroadcastReceiver;
 import android.content.ContentResolver;
@@ -19,6 +20,9 @@ import android.database.Cursor;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
 import android.os.SystemClock;
 import android.provider.Settings;
 import android.util.Log;
@@ -28,8 +32,18 @@ import android.accounts.Account;
 import com.aware.Applications;
 import com.aware.Aware;
 import com.aware.Aware_Preferences;
+import com.aware.plugin.app_usage.core.ChunkedBackfill;
+import com.aware.plugin.app_usage.core.EventDecoder;
+import com.aware.plugin.app_usage.core.PipelineMetrics;
+import com.aware.plugin.app_usage.core.RawEventLog;
+import com.aware.plugin.app_usage.core.TraceBuffer;
+import com.aware.plugin.app_usage.core.UsageEvent;
 import com.aware.utils.Aware_Plugin;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -41,6 +55,9 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * App Usage Tracking Plugin using UsageStatsManager
@@ -57,9 +74,52 @@ public class Plugin extends Aware_Plugin {
     public static final String EXTRA_IS_SYSTEM_APP = "is_system_app";
     public static final String EXTRA_APP_USAGE = "app_usage";
 
+    // Backfill progress broadcast
+    public static final String ACTION_AWARE_PLUGIN_APP_USAGE_BACKFILL = "ACTION_AWARE_PLUGIN_APP_USAGE_BACKFILL";
+    public static final String EXTRA_BACKFILL_CHUNKS_DONE = "chunks_done";
+    public static final String EXTRA_BACKFILL_CHUNKS_TOTAL = "chunks_total";
+
     // Internal action for alarm receiver
     private static final String ACTION_CHECK_APP_USAGE = "com.aware.plugin.app_usage.CHECK_USAGE";
 
+    // Internal action for live reconfiguration (interval, filter mode, app list) without stop/start
+    public static final String ACTION_RECONFIGURE = "com.aware.plugin.app_usage.RECONFIGURE";
+
+    // Debug action: write the trace ring buffer to app_usage_trace.txt in the internal files directory
+    // Only honored in AWARE debug mode: the service is exported, so any app could otherwise send it.
+    // adb shell am startservice -n <package>/com.aware.plugin.app_usage.Plugin -a com.aware.plugin.app_usage.DUMP_TRACE
+    public static final String ACTION_DUMP_TRACE = "com.aware.plugin.app_usage.DUMP_TRACE";
+    private static final String TRACE_FILE_NAME = "app_usage_trace.txt";
+
+    // Segments of the optional raw event journal (Settings.RAW_EVENT_JOURNAL), in the app files directory
+    private static final String RAW_EVENTS_DIR = "raw_events";
+
+    // Elapsed-realtime the alarm was scheduled for (alarm drift metric)
+    private static final String EXTRA_SCHEDULED_TIME = "scheduled_time";
+
+    // Pipeline metrics are written to plugin_app_usage_metrics at most this often
+    private static final long METRICS_SNAPSHOT_INTERVAL = 15 * 60 * 1000;
+
+    // Gaps longer than this are caught up by a parallel chunked backfill instead of one periodic check
+    private static final long BACKFILL_THRESHOLD = 60 * 60 * 1000;
+    // Furthest back a backfill reaches (UsageStats keeps raw events for about a week)
+    private static final long MAX_BACKFILL_PERIOD = 7L * 24 * 60 * 60 * 1000;
+    private static final long BACKFILL_CHUNK = 60 * 60 * 1000;
+    private static final int BACKFILL_MAX_THREADS = 4;
+    private static final long BACKFILL_STOP_TIMEOUT = 5000; // ms onDestroy waits for a cancelled backfill
+
+    // Furthest back the first check after a restart reaches to close sessions restored from the journal
+    private static final long MAX_RESUME_PERIOD = 24 * 60 * 60 * 1000;
+
+    // app_on/app_off format, one per thread: sessions are saved from the check and the backfill threads
+    // and SimpleDateFormat is not thread-safe, so it is reused instead of built for every saved session
+    private static final ThreadLocal<SimpleDateFormat> ISO_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.getDefault());
+        }
+    };
+
     // SharedPreferences
     private static final String PREFS_NAME = "AppUsagePlugin";
     private static final String PREF_LAST_CHECK_TIME = "last_check_time";
@@ -74,9 +134,48 @@ public class Plugin extends Aware_Plugin {
     
     // Configuration
     private long checkInterval = 10 * 1000; // 10 seconds default for better app switching detection
+    private boolean isStarted = false;
+
+    // Relevance, app list filter and app info lookup; filter refreshed once per check and on reconfiguration
+    private EventDecoder eventDecoder;
+    private EventDecoder.AppResolver appResolver;
+
+    // Periodic checks and screen broadcasts pause while a backfill feeds the session manager
+    private volatile boolean isBackfilling = false;
+    // Running backfill, stopped in onDestroy before the open sessions are finalized
+    private Thread backfillThread;
+    private ExecutorService backfillPool;
+    private volatile boolean backfillCancelled;
+    // Last check time before it was capped to MAX_BACKFILL_PERIOD (0 when not capped)
+    private long uncappedLastCheckTime = 0;
     
     // Screen state receiver
     private ScreenStateReceiver screenStateReceiver;
+    // Drops cached app info when a package is installed, updated, changed or removed
+    private PackageChangeReceiver packageChangeReceiver;
+
+    // Usage access (PACKAGE_USAGE_STATS app op), kept current by an AppOps watcher instead of checked per tick
+    private AppOpsManager appOpsManager;
+    private AppOpsManager.OnOpChangedListener usageAccessWatcher;
+    private volatile boolean hasUsageAccess;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Startup warm-up: the first check waits for it instead of paying the cold database and lookups
+    private static final int MAX_WARM_PACKAGES = 200;
+    private final ConcurrentHashMap<String, EventDecoder.AppDescriptor> warmAppInfo = new ConcurrentHashMap<>();
+    private ExecutorService warmUpExecutor;
+    private boolean isWarmedUp = false;
+    // Start of the first check waiting for the warm-up (-1: none). Starts before the warm-up ends merge
+    // into one check from the earliest time, so a resume time taken by an earlier start is kept.
+    private long pendingFirstCheckFrom = -1;
+
+    // Counters and latency histograms shared with the session manager and the provider
+    private final PipelineMetrics metrics = PipelineMetrics.global();
+    private final TraceBuffer trace = TraceBuffer.global();
+
+    // Raw events of non-excluded apps, kept for re-sessionization; null when the journal is off
+    private RawEventLog rawEventLog;
+    private long lastMetricsSnapshot = SystemClock.elapsedRealtime();
 
 
     @Override
@@ -90,6 +189,23 @@ public class Plugin extends Aware_Plugin {
         alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
         
         sessionManager = new AppUsageSessionManager(this);
+        appResolver = new EventDecoder.AppResolver() {
+            @Override
+            public EventDecoder.AppDescriptor resolve(String packageName) {
+                // Resolved during warm-up; used once so later checks still see label or install changes
+                EventDecoder.AppDescriptor warm = warmAppInfo.remove(packageName);
+                if (warm != null) return warm;
+                try {
+                    ApplicationInfo appInfo = packageManager.getApplicationInfo(packageName, 0);
+                    return new EventDecoder.AppDescriptor(
+                            packageManager.getApplicationLabel(appInfo).toString(), isSystemApp(appInfo));
+                } catch (PackageManager.NameNotFoundException e) {
+                    // Package not found, skip
+                    return null;
+                }
+            }
+        };
+        eventDecoder = new EventDecoder(appResolver);
         
         // Register screen state receiver
         screenStateReceiver = new ScreenStateReceiver();
@@ -97,6 +213,18 @@ public class Plugin extends Aware_Plugin {
         filter.addAction(Intent.ACTION_SCREEN_ON);
         filter.addAction(Intent.ACTION_SCREEN_OFF);
         registerReceiver(screenStateReceiver, filter);
+
+        packageChangeReceiver = new PackageChangeReceiver();
+        IntentFilter packageFilter = new IntentFilter();
+        packageFilter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        packageFilter.addDataScheme("package");
+        registerReceiver(packageChangeReceiver, packageFilter);
+
+        watchUsageAccess();
+        startWarmUp();
         
         Log.d(TAG, "App Usage Plugin created");
     }
@@ -106,6 +234,11 @@ public class Plugin extends Aware_Plugin {
         super.onStartCommand(intent, flags, startId);
         
         DEBUG = Aware.getSetting(this, Aware_Preferences.DEBUG_FLAG).equals("true");
+
+        if (intent != null && intent.hasExtra(EXTRA_SCHEDULED_TIME)) {
+            metrics.record(PipelineMetrics.Latency.ALARM_DRIFT,
+                    SystemClock.elapsedRealtime() - intent.getLongExtra(EXTRA_SCHEDULED_TIME, 0));
+        }
         
         // Check if plugin is enabled
         if (Aware.getSetting(getApplicationContext(), com.aware.plugin.app_usage.Settings.STATUS_PLUGIN_APP_USAGE).length() == 0) {
@@ -118,16 +251,49 @@ public class Plugin extends Aware_Plugin {
             }
         }
 
-        // Check usage stats permission
-        if (!hasUsageStatsPermission()) {
+        if (intent != null && ACTION_DUMP_TRACE.equals(intent.getAction())) {
+            if (DEBUG) {
+                dumpTrace();
+            } else {
+                Log.w(TAG, "Trace dump ignored: AWARE debug mode is off");
+            }
+            return isStarted ? START_STICKY : START_NOT_STICKY;
+        }
+
+        // Live reconfiguration: keep active sessions, re-arm the scheduler in place
+        if (isStarted && intent != null && ACTION_RECONFIGURE.equals(intent.getAction())) {
+            configureCheckInterval();
+            configureRawEventLog();
+            loadFilterConfiguration();
+            if (hasUsageAccess) {
+                startPeriodicChecks();
+            }
+            Log.d(TAG, "Plugin reconfigured without restart");
+            return START_STICKY;
+        }
+
+        // Check usage stats permission (cached, updated by the AppOps watcher)
+        if (!hasUsageAccess) {
             Log.e(TAG, "Usage stats permission not granted! Plugin will not function properly.");
             Log.e(TAG, "Please grant usage stats permission manually through Settings.");
             // Don't automatically open settings - let user handle this manually
+            // No alarms while paused: collection resumes from the watcher once access is granted
+            cancelPeriodicChecks();
             return START_STICKY;
         }
 
+        startCollection(intent);
+        
+        return START_STICKY;
+    }
+
+    /**
+     * Start (or resume) monitoring: catch up from the last check time, then check periodically
+     */
+    private void startCollection(Intent intent) {
         // Configure check interval
         configureCheckInterval();
+        configureRawEventLog();
         
         // Setup AWARE sync if in study mode
         setupAwareSync();
@@ -136,9 +302,28 @@ public class Plugin extends Aware_Plugin {
         long lastCheckTime = getLastCheckTime(intent);
         
         // Start monitoring
+        isStarted = true;
         startPeriodicChecks();
-        checkAppUsage(lastCheckTime);
-        
+        if (isWarmedUp) {
+            runFirstCheck(lastCheckTime);
+        } else {
+            pendingFirstCheckFrom = pendingFirstCheckFrom < 0
+                    ? lastCheckTime : Math.min(pendingFirstCheckFrom, lastCheckTime);
+        }
+    }
+
+    /**
+     * Catch up from fromTime (as a backfill for long gaps) and save the filter settings; main thread
+     */
+    private void runFirstCheck(long fromTime) {
+        if (isBackfilling) {
+            if (DEBUG) Log.d(TAG, "Backfill in progress, periodic check skipped");
+        } else if (System.currentTimeMillis() - fromTime > BACKFILL_THRESHOLD) {
+            startBackfill(fromTime);
+        } else {
+            checkAppUsage(fromTime);
+        }
+
         // Save initial filter settings to database
         try {
             com.aware.plugin.app_usage.Settings.saveFilterSettingsToDatabase(this);
@@ -146,23 +331,134 @@ public class Plugin extends Aware_Plugin {
         } catch (Exception e) {
             Log.e(TAG, "Failed to save initial filter settings: " + e.getMessage(), e);
         }
-        
-        return START_STICKY;
+    }
+
+    /**
+     * Warm up on a background thread as soon as the plugin starts: open and prepare the provider
+     * database, compile the app list filter and resolve the app info of recently used packages.
+     * The first check is released once the database is ready; the filter and app info are warmed up
+     * while it runs. Phase timings go to the warmup_* latency histograms of the pipeline metrics.
+     */
+    private void startWarmUp() {
+        final Context context = getApplicationContext();
+        final boolean usageAccess = hasUsageAccess;
+
+        warmUpExecutor = Executors.newSingleThreadExecutor();
+        warmUpExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = SystemClock.elapsedRealtime();
+                long databaseMs = -1;
+                long statementsMs = -1;
+                try {
+                    Bundle timings = getContentResolver().call(Uri.parse("content://" + Provider.getAuthority(context)),
+                            Provider.METHOD_WARM_UP, null, null);
+                    if (timings != null) {
+                        databaseMs = timings.getLong(Provider.EXTRA_DATABASE_MS);
+                        statementsMs = timings.getLong(Provider.EXTRA_STATEMENTS_MS);
+                        metrics.record(PipelineMetrics.Latency.WARMUP_DATABASE, databaseMs);
+                        metrics.record(PipelineMetrics.Latency.WARMUP_STATEMENTS, statementsMs);
+                    }
+                } catch (Exception e) {
+                    // The first insert or query opens the database instead
+                    Log.e(TAG, "Database warm-up failed: " + e.getMessage(), e);
+                }
+
+                // The first check only waits for the database; the rest warms up next to it
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        isWarmedUp = true;
+                        long fromTime = pendingFirstCheckFrom;
+                        pendingFirstCheckFrom = -1;
+                        if (fromTime >= 0) {
+                            runFirstCheck(fromTime);
+                        }
+                    }
+                });
+
+                long filterStart = SystemClock.elapsedRealtime();
+                com.aware.plugin.app_usage.Settings.getAppFilterMatcher(context);
+                com.aware.plugin.app_usage.Settings.isWhitelistMode(context);
+                long filterMs = SystemClock.elapsedRealtime() - filterStart;
+                metrics.record(PipelineMetrics.Latency.WARMUP_FILTER, filterMs);
+
+                long packagesStart = SystemClock.elapsedRealtime();
+                int packages = 0;
+                try {
+                    packages = usageAccess ? preloadAppInfo() : 0;
+                } catch (Exception e) {
+                    Log.e(TAG, "App info warm-up failed: " + e.getMessage(), e);
+                }
+                long packagesMs = SystemClock.elapsedRealtime() - packagesStart;
+                metrics.record(PipelineMetrics.Latency.WARMUP_PACKAGES, packagesMs);
+
+                Log.i(TAG, String.format(Locale.ROOT,
+                        "Warm-up finished in %d ms: database %d ms, statements %d ms, filter %d ms, %d packages %d ms",
+                        SystemClock.elapsedRealtime() - start, databaseMs, statementsMs, filterMs, packages, packagesMs));
+
+            }
+        });
+        warmUpExecutor.shutdown(); // one task: the thread ends with the warm-up, onDestroy interrupts it
+    }
+
+    /**
+     * Resolve the app info of the packages used during the last day for the first check
+     */
+    private int preloadAppInfo() {
+        long now = System.currentTimeMillis();
+        List<UsageStats> stats = usageStatsManager.queryUsageStats(UsageStatsManager.INTERVAL_DAILY,
+                now - 24 * 60 * 60 * 1000, now);
+        if (stats == null) return 0;
+
+        int count = 0;
+        for (UsageStats packageStats : stats) {
+            if (count >= MAX_WARM_PACKAGES) break;
+            String packageName = packageStats.getPackageName();
+            if (packageStats.getTotalTimeInForeground() <= 0 || warmAppInfo.containsKey(packageName)) continue;
+            EventDecoder.AppDescriptor app = appResolver.resolve(packageName);
+            if (app != null) {
+                warmAppInfo.put(packageName, app);
+                count++;
+            }
+        }
+        return count;
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
+
+        if (usageAccessWatcher != null) {
+            appOpsManager.stopWatchingMode(usageAccessWatcher);
+            usageAccessWatcher = null;
+        }
+        // Drops a pending warm-up completion and access changes
+        if (warmUpExecutor != null) {
+            warmUpExecutor.shutdownNow();
+        }
+        mainHandler.removeCallbacksAndMessages(null);
         
+        // No backfill may feed the engine once its sessions are finalized
+        stopBackfill();
+
         // Finalize all active sessions
         if (sessionManager != null) {
             sessionManager.finalizeAllActiveSessions();
+            sessionManager.close();
         }
+
+        // Keep the metrics of the last partial interval
+        saveMetricsSnapshot();
+        closeRawEventLog();
         
         // Unregister receivers
         if (screenStateReceiver != null) {
             unregisterReceiver(screenStateReceiver);
         }
+        if (packageChangeReceiver != null) {
+            unregisterReceiver(packageChangeReceiver);
+        }
         
         // Cancel alarms
         cancelPeriodicChecks();
@@ -176,17 +472,48 @@ public class Plugin extends Aware_Plugin {
     }
 
     /**
-     * Check if app has usage stats permission
+     * Check if app has usage stats permission (one AppOps call; the result is cached in hasUsageAccess)
      */
     private boolean hasUsageStatsPermission() {
-        try {
-            ApplicationInfo applicationInfo = packageManager.getApplicationInfo(getPackageName(), 0);
-            AppOpsManager appOpsManager = (AppOpsManager) getSystemService(Context.APP_OPS_SERVICE);
-            int mode = appOpsManager.checkOpNoThrow(AppOpsManager.OPSTR_GET_USAGE_STATS,
-                    applicationInfo.uid, applicationInfo.packageName);
-            return (mode == AppOpsManager.MODE_ALLOWED);
-        } catch (PackageManager.NameNotFoundException e) {
-            return false;
+        int mode = appOpsManager.checkOpNoThrow(AppOpsManager.OPSTR_GET_USAGE_STATS,
+                Process.myUid(), getPackageName());
+        return (mode == AppOpsManager.MODE_ALLOWED);
+    }
+
+    /**
+     * Cache the usage access state and watch it: revoking pauses collection and alarms,
+     * granting resumes them with a catch-up from the last check time
+     */
+    private void watchUsageAccess() {
+        appOpsManager = (AppOpsManager) getSystemService(Context.APP_OPS_SERVICE);
+        hasUsageAccess = hasUsageStatsPermission();
+        usageAccessWatcher = new AppOpsManager.OnOpChangedListener() {
+            @Override
+            public void onOpChanged(String op, String packageName) {
+                if (!getPackageName().equals(packageName)) return;
+                // Called on a binder thread; the pipeline runs on the main thread
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onUsageAccessChanged(hasUsageStatsPermission());
+                    }
+                });
+            }
+        };
+        appOpsManager.startWatchingMode(AppOpsManager.OPSTR_GET_USAGE_STATS, getPackageName(), usageAccessWatcher);
+    }
+
+    private void onUsageAccessChanged(boolean granted) {
+        if (usageAccessWatcher == null || granted == hasUsageAccess) return;
+        hasUsageAccess = granted;
+
+        if (!granted) {
+            // Open sessions stay open; their end events are picked up by the catch-up
+            cancelPeriodicChecks();
+            Log.w(TAG, "Usage stats permission revoked, collection paused");
+        } else {
+            Log.i(TAG, "Usage stats permission granted, resuming collection");
+            startCollection(null);
         }
     }
 
@@ -199,6 +526,33 @@ public class Plugin extends Aware_Plugin {
         startActivity(intent);
     }
 
+    /**
+     * Ask the running plugin to reload its configuration in place
+     * Active sessions are kept and the periodic check is re-armed with the new interval.
+     * Safe to call from any settings screen: a failed start is logged, the new settings then apply on the next start.
+     */
+    public static void reconfigure(Context context) {
+        if (!Aware.getSetting(context, com.aware.plugin.app_usage.Settings.STATUS_PLUGIN_APP_USAGE).equals("true")) {
+            return;
+        }
+        Intent intent = new Intent(context, Plugin.class);
+        intent.setAction(ACTION_RECONFIGURE);
+        try {
+            context.startService(intent);
+        } catch (Exception e) {
+            // e.g. IllegalStateException when the app is in the background
+            Log.e(TAG, "Error reconfiguring plugin: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Load filter mode and compiled app list from settings
+     */
+    private void loadFilterConfiguration() {
+        eventDecoder.configure(com.aware.plugin.app_usage.Settings.getAppFilterMatcher(this),
+                com.aware.plugin.app_usage.Settings.isWhitelistMode(this));
+    }
+
     /**
      * Configure check interval from settings
      */
@@ -260,13 +614,22 @@ public class Plugin extends Aware_Plugin {
                 // First run: collect last 5 minutes
                 lastCheckTime = System.currentTimeMillis() - (5 * 60 * 1000);
             } else {
-                // Limit to last hour to avoid processing too much data
-                long maxPeriod = System.currentTimeMillis() - (60 * 60 * 1000);
+                // Longer gaps are backfilled in chunks, up to what UsageStats still holds
+                long maxPeriod = System.currentTimeMillis() - MAX_BACKFILL_PERIOD;
                 if (lastCheckTime < maxPeriod) {
+                    uncappedLastCheckTime = lastCheckTime;
                     lastCheckTime = maxPeriod;
                 }
             }
         }
+
+        // Sessions restored after the process was killed: query from where the old process stopped,
+        // so their end events are in the stream (events already processed are skipped by the engine)
+        long resumeTime = sessionManager.consumeResumeTime();
+        if (resumeTime > 0 && resumeTime < lastCheckTime
+                && resumeTime > System.currentTimeMillis() - MAX_RESUME_PERIOD) {
+            lastCheckTime = resumeTime;
+        }
         
         return lastCheckTime;
     }
@@ -275,14 +638,15 @@ public class Plugin extends Aware_Plugin {
      * Start periodic usage checks using AlarmManager
      */
     private void startPeriodicChecks() {
+        long triggerTime = SystemClock.elapsedRealtime() + checkInterval;
+
         Intent alarmIntent = new Intent(this, AlarmReceiver.class);
+        alarmIntent.putExtra(EXTRA_SCHEDULED_TIME, triggerTime);
         PendingIntent pendingIntent = PendingIntent.getBroadcast(this, 0, alarmIntent,
                 PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
 
         alarmManager.cancel(pendingIntent);
 
-        long triggerTime = SystemClock.elapsedRealtime() + checkInterval;
-
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
             alarmManager.setExactAndAllowWhileIdle(
                     AlarmManager.ELAPSED_REALTIME_WAKEUP,
@@ -297,7 +661,7 @@ public class Plugin extends Aware_Plugin {
             );
         }
 
-        Log.d(TAG, "Next check scheduled in " + (checkInterval / 1000) + " seconds");
+        if (DEBUG) Log.d(TAG, "Next check scheduled in " + (checkInterval / 1000) + " seconds");
     }
 
     /**
@@ -329,7 +693,7 @@ public class Plugin extends Aware_Plugin {
      * Main method to check app usage using UsageStatsManager
      */
     private void checkAppUsage(long fromTime) {
-        if (!hasUsageStatsPermission()) {
+        if (!hasUsageAccess) {
             Log.e(TAG, "No usage stats permission!");
             return;
         }
@@ -341,18 +705,30 @@ public class Plugin extends Aware_Plugin {
             return;
         }
 
-        Log.d(TAG, "Checking app usage from " + new Date(fromTime) + " to " + new Date(currentTime));
+        if (DEBUG) Log.d(TAG, "Checking app usage from " + new Date(fromTime) + " to " + new Date(currentTime));
+
+        long checkStart = System.nanoTime();
+        metrics.increment(PipelineMetrics.Counter.CHECKS);
 
         // Query usage events
         UsageEvents usageEvents = usageStatsManager.queryEvents(fromTime, currentTime);
+        metrics.recordSince(PipelineMetrics.Latency.QUERY_EVENTS, checkStart);
         if (usageEvents == null) {
             Log.e(TAG, "UsageEvents is null!");
             return;
         }
 
         // Process events
-        List<UsageEventData> events = extractUsageEvents(usageEvents);
+        loadFilterConfiguration();
+        List<UsageEvent> events = extractUsageEvents(usageEvents);
+        warmAppInfo.clear(); // preloaded app info is only meant for the first check
+        trace.record(TraceBuffer.STAGE_CHECK, 0, null, fromTime, events.size());
         sessionManager.processEvents(events);
+        metrics.recordSince(PipelineMetrics.Latency.CHECK, checkStart);
+
+        if (SystemClock.elapsedRealtime() - lastMetricsSnapshot >= METRICS_SNAPSHOT_INTERVAL) {
+            saveMetricsSnapshot();
+        }
 
         // Save last check time
         SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
@@ -362,11 +738,193 @@ public class Plugin extends Aware_Plugin {
         startPeriodicChecks();
     }
 
+    /**
+     * Catch up on a long gap on a background thread: chunks are queried and decoded in parallel and
+     * merged in order into the session manager, with progress logged and broadcast.
+     * The part of the gap without raw events left is filled with estimated totals afterwards.
+     */
+    private void startBackfill(final long fromTime) {
+        final long toTime = System.currentTimeMillis();
+        final long gapStart = uncappedLastCheckTime > 0 ? uncappedLastCheckTime : fromTime;
+        uncappedLastCheckTime = 0;
+        final int threads = Math.max(1, Math.min(BACKFILL_MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+        final com.aware.plugin.app_usage.core.AppFilterMatcher filter =
+                com.aware.plugin.app_usage.Settings.getAppFilterMatcher(this);
+        final boolean whitelistMode = com.aware.plugin.app_usage.Settings.isWhitelistMode(this);
+        final BackfillChunkLoader loader = new BackfillChunkLoader(filter, whitelistMode);
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        isBackfilling = true;
+        backfillCancelled = false;
+        backfillPool = pool;
+
+        backfillThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long started = SystemClock.elapsedRealtime();
+                try {
+                    ChunkedBackfill backfill = new ChunkedBackfill(pool, threads, BACKFILL_CHUNK);
+                    Log.i(TAG, "Backfill of " + (toTime - fromTime) / 60000 + " minutes in "
+                            + backfill.getChunkCount(fromTime, toTime) + " chunks on " + threads + " threads");
+                    long events = sessionManager.processBackfill(backfill, fromTime, toTime,
+                            loader, new ChunkedBackfill.ProgressListener() {
+                                @Override
+                                public void onProgress(int chunksDone, int chunkCount, long eventsMerged) {
+                                    Log.i(TAG, "Backfill " + chunksDone + "/" + chunkCount + " chunks, "
+                                            + eventsMerged + " events");
+                                    Intent progress = new Intent(ACTION_AWARE_PLUGIN_APP_USAGE_BACKFILL);
+                                    progress.putExtra(EXTRA_BACKFILL_CHUNKS_DONE, chunksDone);
+                                    progress.putExtra(EXTRA_BACKFILL_CHUNKS_TOTAL, chunkCount);
+                                    sendBroadcast(progress);
+                                }
+                            });
+                    if (backfillCancelled) throw new InterruptedException("Backfill cancelled");
+
+                    getSharedPreferences(PREFS_NAME, MODE_PRIVATE).edit()
+                            .putLong(PREF_LAST_CHECK_TIME, toTime).apply();
+                    Log.i(TAG, "Backfill finished: " + events + " events in "
+                            + (SystemClock.elapsedRealtime() - started) + " ms");
+
+                    // Before the earliest event UsageStats still holds there are no sessions to rebuild
+                    long eventsFrom = Math.min(loader.getEarliestEventTime(), toTime);
+                    if (eventsFrom > gapStart) {
+                        saveEstimatedUsage(gapStart, eventsFrom, filter, whitelistMode);
+                    }
+                } catch (InterruptedException e) {
+                    // Last check time unchanged: the next start retries the gap, skipping merged events
+                    Log.i(TAG, "Backfill cancelled after " + (SystemClock.elapsedRealtime() - started) + " ms");
+                } catch (Exception e) {
+                    // Last check time unchanged: the next check retries the gap
+                    Log.e(TAG, "Backfill failed: " + e.getMessage(), e);
+                } finally {
+                    pool.shutdownNow();
+                    isBackfilling = false;
+                }
+            }
+        }, "AppUsageBackfill");
+        backfillThread.start();
+    }
+
+    /**
+     * Cancel a running backfill and wait for it to stop merging into the session manager
+     * Chunk queries are interrupted; the merge loop stops at its next batch.
+     */
+    private void stopBackfill() {
+        Thread thread = backfillThread;
+        if (thread == null) return;
+        backfillCancelled = true;
+        backfillPool.shutdownNow();
+        thread.interrupt();
+        try {
+            thread.join(BACKFILL_STOP_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            Log.w(TAG, "Backfill did not stop within " + BACKFILL_STOP_TIMEOUT + " ms");
+        }
+        backfillThread = null;
+        backfillPool = null;
+    }
+
+    /**
+     * Queries and decodes one backfill chunk; runs on several pool threads at once
+     */
+    private class BackfillChunkLoader implements ChunkedBackfill.ChunkLoader {
+        private final com.aware.plugin.app_usage.core.AppFilterMatcher filter;
+        private final boolean whitelistMode;
+        private final AtomicLong earliestEvent = new AtomicLong(Long.MAX_VALUE);
+
+        BackfillChunkLoader(com.aware.plugin.app_usage.core.AppFilterMatcher filter, boolean whitelistMode) {
+            this.filter = filter;
+            this.whitelistMode = whitelistMode;
+        }
+
+        @Override
+        public List<UsageEvent> load(long start, long end) throws InterruptedException {
+            long queryStart = System.nanoTime();
+            UsageEvents usageEvents = usageStatsManager.queryEvents(start, end);
+            metrics.recordSince(PipelineMetrics.Latency.QUERY_EVENTS, queryStart);
+            List<UsageEvent> events = new ArrayList<>();
+            if (usageEvents == null) return events;
+
+            // EventDecoder is not thread-safe: one per chunk
+            EventDecoder decoder = new EventDecoder(appResolver);
+            decoder.configure(filter, whitelistMode);
+            UsageEvents.Event event = new UsageEvents.Event();
+            int read = 0;
+            while (usageEvents.hasNextEvent()) {
+                if (backfillCancelled) throw new InterruptedException("Backfill cancelled");
+                usageEvents.getNextEvent(event);
+                if (read++ == 0) {
+                    updateEarliest(event.getTimeStamp());
+                }
+                // Every event belongs to exactly one chunk, so boundaries never duplicate events
+                if (event.getTimeStamp() < start || event.getTimeStamp() >= end) continue;
+                UsageEvent eventData = decoder.decode(event.getPackageName(), event.getEventType(), event.getTimeStamp());
+                if (eventData != null) {
+                    events.add(eventData);
+                }
+            }
+            // UsageEvents come in timestamp order, so the chunk is a sorted run for the merge
+            metrics.add(PipelineMetrics.Counter.EVENTS_READ, read);
+            metrics.add(PipelineMetrics.Counter.EVENTS_DECODED, events.size());
+            decoder.publishMetrics(metrics);
+            trace.record(TraceBuffer.STAGE_CHECK, 0, null, start, events.size());
+            return events;
+        }
+
+        /**
+         * Timestamp of the oldest event of any type read so far (Long.MAX_VALUE if none)
+         */
+        long getEarliestEventTime() {
+            return earliestEvent.get();
+        }
+
+        private void updateEarliest(long timestamp) {
+            long current;
+            while (timestamp < (current = earliestEvent.get())
+                    && !earliestEvent.compareAndSet(current, timestamp)) {
+                // retry
+            }
+        }
+    }
+
+    /**
+     * Hybrid gap fill: coarse per-app foreground totals from UsageStats buckets for [start, end),
+     * saved as estimated rows. Only used where no event-level sessions can be rebuilt.
+     */
+    private void saveEstimatedUsage(long start, long end,
+                                    com.aware.plugin.app_usage.core.AppFilterMatcher filter,
+                                    boolean whitelistMode) {
+        EventDecoder decoder = new EventDecoder(appResolver);
+        decoder.configure(filter, whitelistMode);
+        int saved = 0;
+        for (UsageStatsEstimator.Estimate estimate : new UsageStatsEstimator(usageStatsManager).estimate(start, end)) {
+            if (backfillCancelled) break;
+            if (decoder.isExcluded(estimate.packageName)) continue;
+            EventDecoder.AppDescriptor app = appResolver.resolve(estimate.packageName);
+            if (app == null) continue;
+
+            ContentValues values = usageValues(estimate.packageName, app.appName, app.isSystemApp,
+                    estimate.startTime, estimate.endTime, estimate.foregroundMs);
+            values.put(Provider.AppUsage_Data.ESTIMATED, 1);
+            try {
+                getContentResolver().insert(Provider.AppUsage_Data.CONTENT_URI, values);
+                saved++;
+            } catch (Exception e) {
+                metrics.increment(PipelineMetrics.Counter.INSERT_FAILURES);
+                Log.e(TAG, "Error saving estimated usage: " + e.getMessage());
+            }
+        }
+        Log.i(TAG, "Gap without usage events " + (end - start) / 60000 + " minutes: "
+                + saved + " estimated rows saved");
+    }
+
     /**
      * Extract relevant usage events from UsageEvents
      */
-    private List<UsageEventData> extractUsageEvents(UsageEvents usageEvents) {
-        List<UsageEventData> events = new ArrayList<>();
+    private List<UsageEvent> extractUsageEvents(UsageEvents usageEvents) {
+        List<UsageEvent> events = new ArrayList<>();
         UsageEvents.Event event = new UsageEvents.Event();
         int totalEvents = 0;
         int filteredEvents = 0;
@@ -375,75 +933,118 @@ public class Plugin extends Aware_Plugin {
             usageEvents.getNextEvent(event);
             totalEvents++;
 
-            String packageName = event.getPackageName();
-            
-            // Debug: log ALL events to see what's happening
-            if (totalEvents <= 25) { // Limit to first 25 events to avoid spam
-                Log.d(TAG, "Event #" + totalEvents + ": pkg=" + packageName + " type=" + event.getEventType() + " time=" + new java.util.Date(event.getTimeStamp()));
-            }
-            
-            // Debug: log keyboard events specifically
-            if (packageName != null && packageName.contains("honeyboard")) {
-                Log.d(TAG, "KEYBOARD EVENT FOUND: " + packageName + " type=" + event.getEventType() + " time=" + new java.util.Date(event.getTimeStamp()));
-            }
-            
-            if (packageName == null || !isRelevantEventType(event.getEventType())) {
-                if (packageName != null && packageName.contains("honeyboard")) {
-                    Log.d(TAG, "KEYBOARD EVENT FILTERED - null packageName or irrelevant event type: " + event.getEventType());
-                }
-                continue;
+            // Every event type is journaled, so later session rules can use more than today's
+            if (rawEventLog != null && event.getPackageName() != null
+                    && !eventDecoder.isExcluded(event.getPackageName())) {
+                appendRawEvent(event.getPackageName(), event.getEventType(), event.getTimeStamp());
             }
 
-            // Skip if app is blacklisted by user
-            if (isAppBlacklisted(packageName)) {
-                if (packageName.contains("honeyboard")) {
-                    Log.d(TAG, "Keyboard event filtered - blacklisted");
-                }
-                continue;
-            }
-
-            // Get app info and create event data
-            UsageEventData eventData = createUsageEventData(event);
+            // Relevance, app list filter and app info (resolved once per package per check)
+            // No per-event logging here: it allocates for every event (see AllocationCheck in the benchmarks module)
+            UsageEvent eventData = eventDecoder.decode(event.getPackageName(), event.getEventType(), event.getTimeStamp());
             if (eventData != null) {
                 events.add(eventData);
                 filteredEvents++;
-                
-                if (packageName.contains("honeyboard")) {
-                    Log.d(TAG, "Keyboard event processed successfully: " + packageName);
-                }
-            } else {
-                if (packageName.contains("honeyboard")) {
-                    Log.d(TAG, "Keyboard event filtered - createUsageEventData returned null");
-                }
+                trace.record(TraceBuffer.STAGE_DECODED, eventData.eventType, eventData.packageName, eventData.timestamp, 0);
+            }
+        }
+
+        if (rawEventLog != null) {
+            try {
+                rawEventLog.flush();
+            } catch (IOException e) {
+                Log.e(TAG, "Raw event journal write failed, journal disabled: " + e.getMessage());
+                closeRawEventLog();
             }
         }
 
-        Log.d(TAG, "Event extraction: " + totalEvents + " total, " + filteredEvents + " processed");
+        metrics.add(PipelineMetrics.Counter.EVENTS_READ, totalEvents);
+        metrics.add(PipelineMetrics.Counter.EVENTS_DECODED, filteredEvents);
+        eventDecoder.publishMetrics(metrics);
+
+        if (DEBUG) Log.d(TAG, "Event extraction: " + totalEvents + " total, " + filteredEvents + " processed");
         return events;
     }
 
+    private void appendRawEvent(String packageName, int eventType, long timestamp) {
+        try {
+            rawEventLog.append(packageName, eventType, timestamp);
+        } catch (IOException e) {
+            Log.e(TAG, "Raw event journal write failed, journal disabled: " + e.getMessage());
+            closeRawEventLog();
+        }
+    }
+
     /**
-     * Create UsageEventData from UsageEvents.Event
+     * Open or close the raw event journal according to the setting
      */
-    private UsageEventData createUsageEventData(UsageEvents.Event event) {
+    private void configureRawEventLog() {
+        boolean enabled = Aware.getSetting(this, com.aware.plugin.app_usage.Settings.RAW_EVENT_JOURNAL).equals("true");
+        if (enabled && rawEventLog == null) {
+            try {
+                rawEventLog = RawEventLog.open(new File(getFilesDir(), RAW_EVENTS_DIR));
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot open raw event journal: " + e.getMessage());
+            }
+        } else if (!enabled) {
+            closeRawEventLog();
+        }
+    }
+
+    private void closeRawEventLog() {
+        if (rawEventLog == null) return;
         try {
-            ApplicationInfo appInfo = packageManager.getApplicationInfo(event.getPackageName(), 0);
-            boolean isSystemApp = isSystemApp(appInfo);
-            String appName = packageManager.getApplicationLabel(appInfo).toString();
-
-            return new UsageEventData(
-                    event.getPackageName(),
-                    appName,
-                    isSystemApp,
-                    event.getEventType(),
-                    event.getTimeStamp()
-            );
-        } catch (PackageManager.NameNotFoundException e) {
-            // Package not found, skip
-            return null;
+            rawEventLog.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to close raw event journal: " + e.getMessage());
+        }
+        rawEventLog = null;
+    }
+
+    /**
+     * Write the trace ring buffer to a text file in the internal files directory (not readable by other apps)
+     */
+    private void dumpTrace() {
+        File file = new File(getFilesDir(), TRACE_FILE_NAME);
+        try (Writer writer = new FileWriter(file)) {
+            trace.dump(writer);
+            Log.i(TAG, "Trace dumped to " + file.getAbsolutePath() + " (" + trace.getRecordCount() + " records written so far)");
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to dump trace: " + e.getMessage());
         }
     }
 
+    /**
+     * Write the metrics collected since the previous snapshot to plugin_app_usage_metrics
+     */
+    private void saveMetricsSnapshot() {
+        lastMetricsSnapshot = SystemClock.elapsedRealtime();
+        PipelineMetrics.Snapshot snapshot = metrics.snapshotAndReset(System.currentTimeMillis());
+
+        ContentValues values = new ContentValues();
+        values.put(Provider.Metrics_Data.TIMESTAMP, snapshot.endTime);
+        values.put(Provider.Metrics_Data.DEVICE_ID, Aware.getSetting(this, Aware_Preferences.DEVICE_ID));
+        values.put(Provider.Metrics_Data.INTERVAL_START, snapshot.startTime);
+        values.put(Provider.Metrics_Data.CHECKS, snapshot.get(PipelineMetrics.Counter.CHECKS));
+        values.put(Provider.Metrics_Data.EVENTS_READ, snapshot.get(PipelineMetrics.Counter.EVENTS_READ));
+        values.put(Provider.Metrics_Data.EVENTS_DECODED, snapshot.get(PipelineMetrics.Counter.EVENTS_DECODED));
+        values.put(Provider.Metrics_Data.EVENTS_IRRELEVANT, snapshot.get(PipelineMetrics.Counter.EVENTS_IRRELEVANT));
+        values.put(Provider.Metrics_Data.EVENTS_EXCLUDED, snapshot.get(PipelineMetrics.Counter.EVENTS_EXCLUDED));
+        values.put(Provider.Metrics_Data.EVENTS_NOT_INSTALLED, snapshot.get(PipelineMetrics.Counter.EVENTS_NOT_INSTALLED));
+        values.put(Provider.Metrics_Data.PACKAGE_LOOKUPS, snapshot.get(PipelineMetrics.Counter.PACKAGE_LOOKUPS));
+        values.put(Provider.Metrics_Data.SESSIONS_SAVED, snapshot.get(PipelineMetrics.Counter.SESSIONS_SAVED));
+        values.put(Provider.Metrics_Data.SESSIONS_TOO_SHORT, snapshot.get(PipelineMetrics.Counter.SESSIONS_TOO_SHORT));
+        values.put(Provider.Metrics_Data.INSERT_FAILURES, snapshot.get(PipelineMetrics.Counter.INSERT_FAILURES));
+        values.put(Provider.Metrics_Data.SESSIONS_NOT_JOURNALED,
+                snapshot.get(PipelineMetrics.Counter.SESSIONS_NOT_JOURNALED));
+        values.put(Provider.Metrics_Data.LATENCIES, snapshot.latenciesToJson());
+
+        try {
+            getContentResolver().insert(Provider.Metrics_Data.CONTENT_URI, values);
+        } catch (Exception e) {
+            Log.e(TAG, "Error saving metrics snapshot: " + e.getMessage());
+        }
+    }
 
     /**
      * Check if application is a system app
@@ -465,68 +1066,22 @@ public class Plugin extends Aware_Plugin {
         return isSystem;
     }
 
-    /**
-     * Check if app should be excluded from tracking based on filter mode
-     */
-    private boolean isAppBlacklisted(String packageName) {
-        // Get current filter mode and app list
-        boolean isWhitelistMode = com.aware.plugin.app_usage.Settings.isWhitelistMode(this);
-        Set<String> appList = com.aware.plugin.app_usage.Settings.getAppList(this);
-        
-        if (isWhitelistMode) {
-            // In whitelist mode: exclude apps NOT in the list
-            return appList == null || !appList.contains(packageName);
-        } else {
-            // In blacklist mode: exclude apps IN the list
-            return appList != null && appList.contains(packageName);
-        }
-    }
-
-    /**
-     * Check if event type is relevant for session tracking
-     */
-    private boolean isRelevantEventType(int eventType) {
-        return eventType == UsageEvents.Event.MOVE_TO_FOREGROUND ||
-                eventType == UsageEvents.Event.MOVE_TO_BACKGROUND ||
-                eventType == 23 || // ACTIVITY_RESUMED
-                eventType == 2 ||  // ACTIVITY_PAUSED
-                eventType == 15 || // SCREEN_INTERACTIVE
-                eventType == 16;   // SCREEN_NON_INTERACTIVE
-    }
-
-    /**
-     * Usage event data structure
-     */
-    public static class UsageEventData {
-        public final String packageName;
-        public final String appName;
-        public final boolean isSystemApp;
-        public final int eventType;
-        public final long timestamp;
-
-        public UsageEventData(String packageName, String appName, boolean isSystemApp, 
-                             int eventType, long timestamp) {
-            this.packageName = packageName;
-            this.appName = appName;
-            this.isSystemApp = isSystemApp;
-            this.eventType = eventType;
-            this.timestamp = timestamp;
-        }
-    }
-
     /**
      * Screen state receiver to handle screen on/off events
      */
     private class ScreenStateReceiver extends BroadcastReceiver {
         @Override
         public void onReceive(Context context, Intent intent) {
+            // The backfilled stream carries its own screen events
+            if (isBackfilling) return;
+
             if (Intent.ACTION_SCREEN_OFF.equals(intent.getAction())) {
-                Log.d(TAG, "Screen turned off - finalizing all sessions");
+                if (DEBUG) Log.d(TAG, "Screen turned off - finalizing all sessions");
                 if (sessionManager != null) {
                     sessionManager.handleScreenOff();
                 }
             } else if (Intent.ACTION_SCREEN_ON.equals(intent.getAction())) {
-                Log.d(TAG, "Screen turned on");
+                if (DEBUG) Log.d(TAG, "Screen turned on");
                 if (sessionManager != null) {
                     sessionManager.handleScreenOn();
                 }
@@ -534,13 +1089,43 @@ public class Plugin extends Aware_Plugin {
         }
     }
 
+    /**
+     * Package change receiver: app info is cached per check, so a rename, update or uninstall
+     * is noticed by the next event instead of after the check
+     */
+    private class PackageChangeReceiver extends BroadcastReceiver {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Uri data = intent.getData();
+            String packageName = data != null ? data.getSchemeSpecificPart() : null;
+            if (packageName == null) return;
+            if (eventDecoder != null) {
+                eventDecoder.forget(packageName);
+            }
+            warmAppInfo.remove(packageName);
+        }
+    }
+
+    /**
+     * Usage event data structure
+     * @deprecated the pipeline passes {@link UsageEvent} (core module); kept for source compatibility
+     */
+    @Deprecated
+    public static class UsageEventData extends UsageEvent {
+
+        public UsageEventData(String packageName, String appName, boolean isSystemApp,
+                             int eventType, long timestamp) {
+            super(packageName, appName, isSystemApp, eventType, timestamp);
+        }
+    }
+
     /**
      * Alarm receiver for periodic checks
      */
     public static class AlarmReceiver extends BroadcastReceiver {
         @Override
         public void onReceive(Context context, Intent intent) {
-            Log.d(TAG, "Alarm triggered - starting periodic check");
+            if (DEBUG) Log.d(TAG, "Alarm triggered - starting periodic check");
 
             SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
             long lastCheckTime = prefs.getLong(PREF_LAST_CHECK_TIME, 
@@ -548,6 +1133,9 @@ public class Plugin extends Aware_Plugin {
 
             Intent serviceIntent = new Intent(context, Plugin.class);
             serviceIntent.putExtra("last_check_time", lastCheckTime);
+            if (intent.hasExtra(EXTRA_SCHEDULED_TIME)) {
+                serviceIntent.putExtra(EXTRA_SCHEDULED_TIME, intent.getLongExtra(EXTRA_SCHEDULED_TIME, 0));
+            }
             context.startService(serviceIntent);
         }
     }
@@ -558,29 +1146,21 @@ public class Plugin extends Aware_Plugin {
     public void saveAppUsageSession(String packageName, String appName, boolean isSystemApp, 
                                    long startTime, long endTime) {
         long duration = endTime - startTime;
-        
-        SimpleDateFormat isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.getDefault());
 
-        ContentValues values = new ContentValues();
-        values.put(Provider.AppUsage_Data.TIMESTAMP, System.currentTimeMillis());
-        values.put(Provider.AppUsage_Data.DEVICE_ID,
-                Aware.getSetting(this, Aware_Preferences.DEVICE_ID));
-        values.put(Provider.AppUsage_Data.PACKAGE_NAME, packageName);
-        values.put(Provider.AppUsage_Data.CATEGORY, "not_registered");
-        values.put(Provider.AppUsage_Data.APPLICATION_NAME, appName);
-        values.put(Provider.AppUsage_Data.IS_SYSTEM_APP, isSystemApp ? 1 : 0);
-        values.put(Provider.AppUsage_Data.APP_ON, isoFormat.format(new Date(startTime)));
-        values.put(Provider.AppUsage_Data.APP_OFF, isoFormat.format(new Date(endTime)));
-        values.put(Provider.AppUsage_Data.APP_USAGE, duration / 1000); // seconds
+        ContentValues values = usageValues(packageName, appName, isSystemApp, startTime, endTime, duration);
 
         try {
             getContentResolver().insert(Provider.AppUsage_Data.CONTENT_URI, values);
+            metrics.increment(PipelineMetrics.Counter.SESSIONS_SAVED);
 
-            Log.d(TAG, String.format("Session saved: %s (%s ~ %s, %d seconds)",
-                    appName,
-                    isoFormat.format(new Date(startTime)),
-                    isoFormat.format(new Date(endTime)),
-                    duration / 1000));
+            if (DEBUG) {
+                SimpleDateFormat isoFormat = ISO_FORMAT.get();
+                Log.d(TAG, String.format("Session saved: %s (%s ~ %s, %d seconds)",
+                        appName,
+                        isoFormat.format(new Date(startTime)),
+                        isoFormat.format(new Date(endTime)),
+                        duration / 1000));
+            }
 
             // Send broadcast
             Intent broadcast = new Intent(ACTION_AWARE_PLUGIN_APP_USAGE);
@@ -591,8 +1171,31 @@ public class Plugin extends Aware_Plugin {
             sendBroadcast(broadcast);
 
         } catch (Exception e) {
+            metrics.increment(PipelineMetrics.Counter.INSERT_FAILURES);
             Log.e(TAG, "Error saving session: " + e.getMessage());
         }
     }
 
+    /**
+     * plugin_app_usage row for usage of a package between startTime and endTime
+     */
+    private ContentValues usageValues(String packageName, String appName, boolean isSystemApp,
+                                      long startTime, long endTime, long usageMs) {
+        SimpleDateFormat isoFormat = ISO_FORMAT.get();
+
+        // timestamp and commit_delay are set by the provider when the row is committed
+        ContentValues values = new ContentValues();
+        values.put(Provider.AppUsage_Data.DEVICE_ID,
+                Aware.getSetting(this, Aware_Preferences.DEVICE_ID));
+        values.put(Provider.AppUsage_Data.PACKAGE_NAME, packageName);
+        values.put(Provider.AppUsage_Data.CATEGORY, "not_registered");
+        values.put(Provider.AppUsage_Data.APPLICATION_NAME, appName);
+        values.put(Provider.AppUsage_Data.IS_SYSTEM_APP, isSystemApp ? 1 : 0);
+        values.put(Provider.AppUsage_Data.APP_ON, isoFormat.format(new Date(startTime)));
+        values.put(Provider.AppUsage_Data.APP_OFF, isoFormat.format(new Date(endTime)));
+        values.put(Provider.AppUsage_Data.APP_USAGE, usageMs / 1000); // seconds
+        values.put(Provider.AppUsage_Data.END_TIME, endTime);
+        return values;
+    }
+
 }
\ No newline at end of file
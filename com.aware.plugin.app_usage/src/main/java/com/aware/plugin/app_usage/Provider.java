@@ -12,14 +12,23 @@ import android.database.Cursor;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
+import android.os.Bundle;
+import android.os.SystemClock;
 import android.provider.BaseColumns;
 import android.util.Log;
 
 import com.aware.Aware;
+import com.aware.plugin.app_usage.core.PipelineMetrics;
+import com.aware.plugin.app_usage.core.SingleWriter;
+import com.aware.plugin.app_usage.core.TraceBuffer;
 import com.aware.utils.DatabaseHelper;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Future;
 
 public class Provider extends ContentProvider {
 
@@ -31,7 +40,7 @@ public class Provider extends ContentProvider {
     /**
      * ContentProvider database version. Increment every time you modify the database structure
      */
-    public static final int DATABASE_VERSION = 12;
+    public static final int DATABASE_VERSION = 17;
 
     public static final class AppUsage_Data implements BaseColumns {
         private AppUsage_Data() {
@@ -65,8 +74,27 @@ public class Provider extends ContentProvider {
         public static final String APP_ON = "app_on";
         public static final String APP_OFF = "app_off";
         public static final String APP_USAGE = "app_usage";
+        public static final String COMMIT_DELAY = "commit_delay"; // ms from the session end to the commit (timestamp - end_time)
+        public static final String ESTIMATED = "estimated"; // 1: bucket total from UsageStats, not an event-level session
+        public static final String END_TIME = "end_time"; // unix ms the usage ended (session end or bucket end), indexed
     }
     
+    /**
+     * Per-package usage totals aggregated from plugin_app_usage (read-only)<br/>
+     * Filter rows with a selection on AppUsage_Data.END_TIME (indexed, when the usage happened), and
+     * AppUsage_Data.ESTIMATED = 0 for event-level sessions only; rows are grouped by package name
+     */
+    public static final class AppUsage_Totals implements BaseColumns {
+        private AppUsage_Totals() {
+        }
+
+        public static final Uri CONTENT_URI = Uri.parse("content://" + AUTHORITY + "/plugin_app_usage_totals");
+        public static final String CONTENT_TYPE = "vnd.android.cursor.dir/vnd.aware.plugin.app_usage_totals";
+
+        public static final String PACKAGE_NAME = AppUsage_Data.PACKAGE_NAME;
+        public static final String TOTAL_USAGE = "total_usage"; // seconds
+    }
+
     /**
      * App Filter Settings table
      */
@@ -87,11 +115,44 @@ public class Provider extends ContentProvider {
         public static final String LAST_MODIFIED = "last_modified";
     }
 
+    /**
+     * Pipeline metrics snapshots (PipelineMetrics), one row per snapshot interval<br/>
+     * Counters cover [INTERVAL_START, TIMESTAMP]; LATENCIES holds the fixed-bucket histograms as JSON
+     */
+    public static final class Metrics_Data implements BaseColumns {
+        private Metrics_Data() {
+        }
+
+        public static final Uri CONTENT_URI = Uri.parse("content://" + AUTHORITY + "/plugin_app_usage_metrics");
+        public static final String CONTENT_TYPE = "vnd.android.cursor.dir/vnd.aware.plugin.app_usage_metrics";
+        public static final String CONTENT_ITEM_TYPE = "vnd.android.cursor.item/vnd.aware.plugin.app_usage_metrics";
+
+        public static final String _ID = "_id";
+        public static final String TIMESTAMP = "timestamp";
+        public static final String DEVICE_ID = "device_id";
+        public static final String INTERVAL_START = "interval_start";
+        public static final String CHECKS = "checks";
+        public static final String EVENTS_READ = "events_read";
+        public static final String EVENTS_DECODED = "events_decoded";
+        public static final String EVENTS_IRRELEVANT = "events_irrelevant";
+        public static final String EVENTS_EXCLUDED = "events_excluded";
+        public static final String EVENTS_NOT_INSTALLED = "events_not_installed";
+        public static final String PACKAGE_LOOKUPS = "package_lookups";
+        public static final String SESSIONS_SAVED = "sessions_saved";
+        public static final String SESSIONS_TOO_SHORT = "sessions_too_short";
+        public static final String INSERT_FAILURES = "insert_failures";
+        public static final String SESSIONS_NOT_JOURNALED = "sessions_not_journaled";
+        public static final String LATENCIES = "latencies";
+    }
+
     //ContentProvider query indexes
     private static final int APP_USAGE = 1;
     private static final int APP_USAGE_ID = 2;
     private static final int APP_FILTER_SETTINGS = 3;
     private static final int APP_FILTER_SETTINGS_ID = 4;
+    private static final int APP_USAGE_TOTALS = 5;
+    private static final int METRICS = 6;
+    private static final int METRICS_ID = 7;
 
     /**
      * Database stored in external folder: /AWARE/plugin_app_usage.db
@@ -102,8 +163,9 @@ public class Provider extends ContentProvider {
      * Database tables:<br/>
      * - plugin_app_usage
      * - plugin_app_filter_settings
+     * - plugin_app_usage_metrics
      */
-    public static final String[] DATABASE_TABLES = {"plugin_app_usage", "plugin_app_filter_settings"};
+    public static final String[] DATABASE_TABLES = {"plugin_app_usage", "plugin_app_filter_settings", "plugin_app_usage_metrics"};
 
     /**
      * Database table fields
@@ -118,7 +180,10 @@ public class Provider extends ContentProvider {
                     AppUsage_Data.IS_SYSTEM_APP + " integer default 0," +
                     AppUsage_Data.APP_ON + " text default ''," +  // real에서 text로 변경
                     AppUsage_Data.APP_OFF + " text default ''," + // real에서 text로 변경
-                    AppUsage_Data.APP_USAGE + " real default 0",
+                    AppUsage_Data.APP_USAGE + " real default 0," +
+                    AppUsage_Data.COMMIT_DELAY + " integer default 0," +
+                    AppUsage_Data.ESTIMATED + " integer default 0," +
+                    AppUsage_Data.END_TIME + " real default 0",
             
             // New table for filter settings
             AppFilterSettings_Data._ID + " integer primary key autoincrement," +
@@ -127,14 +192,62 @@ public class Provider extends ContentProvider {
                     AppFilterSettings_Data.FILTER_MODE + " text default 'blacklist'," +
                     AppFilterSettings_Data.APP_LIST + " text default ''," +
                     AppFilterSettings_Data.APP_COUNT + " integer default 0," +
-                    AppFilterSettings_Data.LAST_MODIFIED + " integer default 0"
+                    AppFilterSettings_Data.LAST_MODIFIED + " integer default 0",
+
+            // Pipeline metrics snapshots
+            Metrics_Data._ID + " integer primary key autoincrement," +
+                    Metrics_Data.TIMESTAMP + " real default 0," +
+                    Metrics_Data.DEVICE_ID + " text default ''," +
+                    Metrics_Data.INTERVAL_START + " real default 0," +
+                    Metrics_Data.CHECKS + " integer default 0," +
+                    Metrics_Data.EVENTS_READ + " integer default 0," +
+                    Metrics_Data.EVENTS_DECODED + " integer default 0," +
+                    Metrics_Data.EVENTS_IRRELEVANT + " integer default 0," +
+                    Metrics_Data.EVENTS_EXCLUDED + " integer default 0," +
+                    Metrics_Data.EVENTS_NOT_INSTALLED + " integer default 0," +
+                    Metrics_Data.PACKAGE_LOOKUPS + " integer default 0," +
+                    Metrics_Data.SESSIONS_SAVED + " integer default 0," +
+                    Metrics_Data.SESSIONS_TOO_SHORT + " integer default 0," +
+                    Metrics_Data.INSERT_FAILURES + " integer default 0," +
+                    Metrics_Data.SESSIONS_NOT_JOURNALED + " integer default 0," +
+                    Metrics_Data.LATENCIES + " text default ''"
     };
 
+    /**
+     * ContentResolver.call method: open the database and prepare it off the UI thread
+     * Returns the phase timings in milliseconds (EXTRA_DATABASE_MS, EXTRA_STATEMENTS_MS)
+     */
+    public static final String METHOD_WARM_UP = "warm_up";
+    public static final String EXTRA_DATABASE_MS = "database_ms";
+    public static final String EXTRA_STATEMENTS_MS = "statements_ms";
+
     private static UriMatcher sUriMatcher = null;
     private static HashMap<String, String> appUsageTableMap = null;
     private static HashMap<String, String> filterSettingsTableMap = null;
+    private static HashMap<String, String> usageTotalsMap = null;
+    private static HashMap<String, String> metricsTableMap = null;
     private DatabaseHelper dbHelper;
     private static SQLiteDatabase database;
+    // Every insert/update/delete runs on this thread; reads still go straight to the database
+    private static SingleWriter<SQLiteDatabase> writer;
+
+    private static final SingleWriter.Transactions<SQLiteDatabase> TRANSACTIONS =
+            new SingleWriter.Transactions<SQLiteDatabase>() {
+                @Override
+                public void begin(SQLiteDatabase db) {
+                    db.beginTransaction();
+                }
+
+                @Override
+                public void markSuccessful(SQLiteDatabase db) {
+                    db.setTransactionSuccessful();
+                }
+
+                @Override
+                public void end(SQLiteDatabase db) {
+                    db.endTransaction();
+                }
+            };
 
     /**
      * Returns the provider authority that is dynamic
@@ -145,35 +258,113 @@ public class Provider extends ContentProvider {
         return AUTHORITY;
     }
 
-    private void initialiseDatabase() {
+    private synchronized void initialiseDatabase() {
         if (dbHelper == null) {
             dbHelper = new DatabaseHelper(getContext(), DATABASE_NAME, null, DATABASE_VERSION, DATABASE_TABLES, TABLES_FIELDS);
         }
         if (database == null) {
             database = dbHelper.getWritableDatabase();
+            createIndexes(database);
+        }
+        if (writer == null) {
+            writer = new SingleWriter<>(database, TRANSACTIONS, "AppUsageDbWriter");
         }
     }
 
     @Override
-    public synchronized int delete(Uri uri, String selection, String[] selectionArgs) {
+    public Bundle call(String method, String arg, Bundle extras) {
+        if (METHOD_WARM_UP.equals(method)) {
+            return warmUp();
+        }
+        return super.call(method, arg, extras);
+    }
+
+    /**
+     * Open the database (running pending migrations) and start the writer, then load the schema and
+     * the newest page of each table with a primary key probe (one row, no scan), so the first insert
+     * or query is not a cold start
+     */
+    private Bundle warmUp() {
+        long start = SystemClock.elapsedRealtime();
         initialiseDatabase();
+        long opened = SystemClock.elapsedRealtime();
+
+        for (String table : DATABASE_TABLES) {
+            SQLiteStatement statement = database.compileStatement(
+                    "SELECT COALESCE(MAX(" + BaseColumns._ID + "), 0) FROM " + table);
+            try {
+                statement.simpleQueryForLong();
+            } finally {
+                statement.close();
+            }
+        }
+        long prepared = SystemClock.elapsedRealtime();
+
+        Bundle timings = new Bundle();
+        timings.putLong(EXTRA_DATABASE_MS, opened - start);
+        timings.putLong(EXTRA_STATEMENTS_MS, prepared - opened);
+        return timings;
+    }
 
-        database.beginTransaction();
+    /**
+     * Run a write on the writer thread and wait for its commit
+     * Concurrent writers (ingestion, Settings, AppBlacklistActivity) share one transaction per drain.
+     */
+    private static <R> R write(SingleWriter.Command<SQLiteDatabase, R> command) {
+        try {
+            return SingleWriter.await(writer.submit(command));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException("Database write failed", e);
+        }
+    }
 
-        int count;
+    /**
+     * Table of a directory URI, or null when the URI does not name a writable table
+     */
+    private static String tableOf(Uri uri) {
         switch (sUriMatcher.match(uri)) {
             case APP_USAGE:
-                count = database.delete(DATABASE_TABLES[0], selection, selectionArgs);
-                break;
+                return DATABASE_TABLES[0];
             case APP_FILTER_SETTINGS:
-                count = database.delete(DATABASE_TABLES[1], selection, selectionArgs);
-                break;
+                return DATABASE_TABLES[1];
+            case METRICS:
+                return DATABASE_TABLES[2];
             default:
-                database.endTransaction();
-                throw new IllegalArgumentException("Unknown URI " + uri);
+                return null;
+        }
+    }
+
+    /**
+     * Indexes DatabaseHelper does not create; safe to run on every open
+     */
+    private static void createIndexes(SQLiteDatabase db) {
+        // Covers the per-package session totals over a time range (AppUsage_Totals, estimated = 0)
+        // without reading the table; replaces the index without the estimated column
+        db.execSQL("DROP INDEX IF EXISTS " + DATABASE_TABLES[0] + "_end_time");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + DATABASE_TABLES[0] + "_end_time_usage ON " + DATABASE_TABLES[0]
+                + " (" + AppUsage_Data.END_TIME + ", " + AppUsage_Data.PACKAGE_NAME + ", " + AppUsage_Data.APP_USAGE
+                + ", " + AppUsage_Data.ESTIMATED + ")");
+        // Rows from before end_time existed: the insert time is the closest known end time
+        db.execSQL("UPDATE " + DATABASE_TABLES[0] + " SET " + AppUsage_Data.END_TIME + " = " + AppUsage_Data.TIMESTAMP
+                + " WHERE " + AppUsage_Data.END_TIME + " = 0");
+    }
+
+    @Override
+    public int delete(Uri uri, final String selection, final String[] selectionArgs) {
+        initialiseDatabase();
+
+        final String table = tableOf(uri);
+        if (table == null) {
+            throw new IllegalArgumentException("Unknown URI " + uri);
         }
-        database.setTransactionSuccessful();
-        database.endTransaction();
+        int count = write(new SingleWriter.Command<SQLiteDatabase, Integer>() {
+            @Override
+            public Integer execute(SQLiteDatabase db) {
+                return db.delete(table, selection, selectionArgs);
+            }
+        });
         getContext().getContentResolver().notifyChange(uri, null, false);
         return count;
     }
@@ -189,60 +380,150 @@ public class Provider extends ContentProvider {
                 return AppFilterSettings_Data.CONTENT_TYPE;
             case APP_FILTER_SETTINGS_ID:
                 return AppFilterSettings_Data.CONTENT_ITEM_TYPE;
+            case APP_USAGE_TOTALS:
+                return AppUsage_Totals.CONTENT_TYPE;
+            case METRICS:
+                return Metrics_Data.CONTENT_TYPE;
+            case METRICS_ID:
+                return Metrics_Data.CONTENT_ITEM_TYPE;
             default:
                 throw new IllegalArgumentException("Unknown URI " + uri);
         }
     }
 
     @Override
-    public synchronized Uri insert(Uri uri, ContentValues new_values) {
+    public Uri insert(Uri uri, ContentValues new_values) {
         initialiseDatabase();
 
         ContentValues values = (new_values != null) ? new ContentValues(new_values) : new ContentValues();
 
-        database.beginTransaction();
+        long insertStart = System.nanoTime();
 
         switch (sUriMatcher.match(uri)) {
             case APP_USAGE:
-                long _id = database.insertWithOnConflict(DATABASE_TABLES[0],
-                        AppUsage_Data.DEVICE_ID, values, SQLiteDatabase.CONFLICT_IGNORE);
-                database.setTransactionSuccessful();
-                database.endTransaction();
+                long _id = write(appUsageInsertCommand(values));
+                PipelineMetrics.global().recordSince(PipelineMetrics.Latency.INSERT, insertStart);
                 if (_id > 0) {
+                    // Staleness: the end event can wait up to a check interval before it is committed
+                    Long commitDelay = values.getAsLong(AppUsage_Data.COMMIT_DELAY);
+                    if (commitDelay != null) {
+                        PipelineMetrics.global().record(PipelineMetrics.Latency.COMMIT_DELAY, commitDelay);
+                    }
                     Uri dataUri = ContentUris.withAppendedId(
                             AppUsage_Data.CONTENT_URI, _id);
                     getContext().getContentResolver().notifyChange(dataUri, null, false);
-                    Log.d(Aware.TAG, "App Usage Provider - Insert successful, ID: " + _id);
+                    TraceBuffer.global().record(TraceBuffer.STAGE_INSERT, 0,
+                            values.getAsString(AppUsage_Data.PACKAGE_NAME), 0, _id);
+                    if (Aware.DEBUG) Log.d(Aware.TAG, "App Usage Provider - Insert successful, ID: " + _id);
                     return dataUri;
                 } else {
                     Log.e(Aware.TAG, "App Usage Provider - Insert failed, returned ID: " + _id);
                 }
-                database.endTransaction();
                 throw new SQLException("Failed to insert row into " + uri);
             case APP_FILTER_SETTINGS:
-                Log.d(Aware.TAG, "Provider - Inserting filter settings data");
-                Log.d(Aware.TAG, "Provider - Values: " + values.toString());
-                long filter_id = database.insertWithOnConflict(DATABASE_TABLES[1],
-                        AppFilterSettings_Data.DEVICE_ID, values, SQLiteDatabase.CONFLICT_IGNORE);
-                database.setTransactionSuccessful();
-                database.endTransaction();
+                if (Aware.DEBUG) {
+                    Log.d(Aware.TAG, "Provider - Inserting filter settings data");
+                    Log.d(Aware.TAG, "Provider - Values: " + values.toString());
+                }
+                long filter_id = write(insertCommand(DATABASE_TABLES[1], AppFilterSettings_Data.DEVICE_ID, values));
                 if (filter_id > 0) {
                     Uri dataUri = ContentUris.withAppendedId(
                             AppFilterSettings_Data.CONTENT_URI, filter_id);
                     getContext().getContentResolver().notifyChange(dataUri, null, false);
-                    Log.d(Aware.TAG, "Provider - Filter settings insert successful, ID: " + filter_id);
+                    if (Aware.DEBUG) Log.d(Aware.TAG, "Provider - Filter settings insert successful, ID: " + filter_id);
                     return dataUri;
                 } else {
                     Log.e(Aware.TAG, "Provider - Filter settings insert failed, returned ID: " + filter_id);
                 }
-                database.endTransaction();
+                throw new SQLException("Failed to insert row into " + uri);
+            case METRICS:
+                long metrics_id = write(insertCommand(DATABASE_TABLES[2], Metrics_Data.DEVICE_ID, values));
+                if (metrics_id > 0) {
+                    Uri dataUri = ContentUris.withAppendedId(
+                            Metrics_Data.CONTENT_URI, metrics_id);
+                    getContext().getContentResolver().notifyChange(dataUri, null, false);
+                    return dataUri;
+                }
                 throw new SQLException("Failed to insert row into " + uri);
             default:
-                database.endTransaction();
                 throw new IllegalArgumentException("Unknown URI " + uri);
         }
     }
 
+    /**
+     * Session row: timestamp is the commit time, commit_delay the time from the usage end to the commit
+     */
+    private static void stampCommitTime(ContentValues values) {
+        long commitTime = System.currentTimeMillis();
+        values.put(AppUsage_Data.TIMESTAMP, commitTime);
+        Long endTime = values.getAsLong(AppUsage_Data.END_TIME);
+        Integer estimated = values.getAsInteger(AppUsage_Data.ESTIMATED);
+        if (estimated != null && estimated == 1) {
+            // Bucket totals are written long after the bucket ends; no session staleness to report
+            values.putNull(AppUsage_Data.COMMIT_DELAY);
+        } else if (endTime != null && endTime > 0) {
+            values.put(AppUsage_Data.COMMIT_DELAY, commitTime - endTime);
+        }
+    }
+
+    /**
+     * All rows are queued at once, so they are committed in one transaction (or a few)
+     */
+    @Override
+    public int bulkInsert(Uri uri, ContentValues[] values) {
+        initialiseDatabase();
+
+        String table = tableOf(uri);
+        if (table == null) {
+            throw new IllegalArgumentException("Unknown URI " + uri);
+        }
+        List<Future<Long>> rows = new ArrayList<>(values.length);
+        for (ContentValues row : values) {
+            ContentValues copy = new ContentValues(row);
+            rows.add(writer.submit(table.equals(DATABASE_TABLES[0])
+                    ? appUsageInsertCommand(copy)
+                    : insertCommand(table, AppUsage_Data.DEVICE_ID, copy)));
+        }
+        int count = 0;
+        for (Future<Long> row : rows) {
+            try {
+                if (SingleWriter.await(row) > 0) count++;
+            } catch (Exception e) {
+                Log.e(Aware.TAG, "Provider - Bulk insert row failed: " + e.getMessage());
+            }
+        }
+        if (count > 0) {
+            getContext().getContentResolver().notifyChange(uri, null, false);
+        }
+        return count;
+    }
+
+    private static SingleWriter.Command<SQLiteDatabase, Long> insertCommand(final String table,
+                                                                            final String nullColumnHack,
+                                                                            final ContentValues values) {
+        return new SingleWriter.Command<SQLiteDatabase, Long>() {
+            @Override
+            public Long execute(SQLiteDatabase db) {
+                return db.insertWithOnConflict(table, nullColumnHack, values, SQLiteDatabase.CONFLICT_IGNORE);
+            }
+        };
+    }
+
+    /**
+     * Session row insert; timestamp (commit time) and commit_delay are taken on the writer thread inside
+     * the transaction, so they describe when the row became visible, not when it was queued
+     */
+    private static SingleWriter.Command<SQLiteDatabase, Long> appUsageInsertCommand(final ContentValues values) {
+        return new SingleWriter.Command<SQLiteDatabase, Long>() {
+            @Override
+            public Long execute(SQLiteDatabase db) {
+                stampCommitTime(values);
+                return db.insertWithOnConflict(DATABASE_TABLES[0], AppUsage_Data.DEVICE_ID, values,
+                        SQLiteDatabase.CONFLICT_IGNORE);
+            }
+        };
+    }
+
     @Override
     public boolean onCreate() {
 
@@ -253,6 +534,9 @@ public class Provider extends ContentProvider {
         sUriMatcher.addURI(AUTHORITY, DATABASE_TABLES[0] + "/#", APP_USAGE_ID); //URI for a single record
         sUriMatcher.addURI(AUTHORITY, DATABASE_TABLES[1], APP_FILTER_SETTINGS); //URI for filter settings
         sUriMatcher.addURI(AUTHORITY, DATABASE_TABLES[1] + "/#", APP_FILTER_SETTINGS_ID); //URI for a single filter setting
+        sUriMatcher.addURI(AUTHORITY, "plugin_app_usage_totals", APP_USAGE_TOTALS); //URI for per-package usage totals
+        sUriMatcher.addURI(AUTHORITY, DATABASE_TABLES[2], METRICS); //URI for pipeline metrics snapshots
+        sUriMatcher.addURI(AUTHORITY, DATABASE_TABLES[2] + "/#", METRICS_ID); //URI for a single metrics snapshot
 
         appUsageTableMap = new HashMap<String, String>();
         appUsageTableMap.put(AppUsage_Data._ID, AppUsage_Data._ID);
@@ -265,6 +549,9 @@ public class Provider extends ContentProvider {
         appUsageTableMap.put(AppUsage_Data.APP_ON, AppUsage_Data.APP_ON);
         appUsageTableMap.put(AppUsage_Data.APP_OFF, AppUsage_Data.APP_OFF);
         appUsageTableMap.put(AppUsage_Data.APP_USAGE, AppUsage_Data.APP_USAGE);
+        appUsageTableMap.put(AppUsage_Data.COMMIT_DELAY, AppUsage_Data.COMMIT_DELAY);
+        appUsageTableMap.put(AppUsage_Data.ESTIMATED, AppUsage_Data.ESTIMATED);
+        appUsageTableMap.put(AppUsage_Data.END_TIME, AppUsage_Data.END_TIME);
         
         filterSettingsTableMap = new HashMap<String, String>();
         filterSettingsTableMap.put(AppFilterSettings_Data._ID, AppFilterSettings_Data._ID);
@@ -275,6 +562,21 @@ public class Provider extends ContentProvider {
         filterSettingsTableMap.put(AppFilterSettings_Data.APP_COUNT, AppFilterSettings_Data.APP_COUNT);
         filterSettingsTableMap.put(AppFilterSettings_Data.LAST_MODIFIED, AppFilterSettings_Data.LAST_MODIFIED);
 
+        usageTotalsMap = new HashMap<String, String>();
+        usageTotalsMap.put(AppUsage_Totals.PACKAGE_NAME, AppUsage_Data.PACKAGE_NAME);
+        usageTotalsMap.put(AppUsage_Totals.TOTAL_USAGE,
+                "SUM(" + AppUsage_Data.APP_USAGE + ") AS " + AppUsage_Totals.TOTAL_USAGE);
+
+        metricsTableMap = new HashMap<String, String>();
+        for (String column : new String[]{Metrics_Data._ID, Metrics_Data.TIMESTAMP, Metrics_Data.DEVICE_ID,
+                Metrics_Data.INTERVAL_START, Metrics_Data.CHECKS, Metrics_Data.EVENTS_READ,
+                Metrics_Data.EVENTS_DECODED, Metrics_Data.EVENTS_IRRELEVANT, Metrics_Data.EVENTS_EXCLUDED,
+                Metrics_Data.EVENTS_NOT_INSTALLED, Metrics_Data.PACKAGE_LOOKUPS, Metrics_Data.SESSIONS_SAVED,
+                Metrics_Data.SESSIONS_TOO_SHORT, Metrics_Data.INSERT_FAILURES, Metrics_Data.SESSIONS_NOT_JOURNALED,
+                Metrics_Data.LATENCIES}) {
+            metricsTableMap.put(column, column);
+        }
+
         return true;
     }
 
@@ -284,6 +586,7 @@ public class Provider extends ContentProvider {
         initialiseDatabase();
 
         SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
+        String groupBy = null;
         switch (sUriMatcher.match(uri)) {
             case APP_USAGE:
                 qb.setTables(DATABASE_TABLES[0]);
@@ -293,13 +596,24 @@ public class Provider extends ContentProvider {
                 qb.setTables(DATABASE_TABLES[1]);
                 qb.setProjectionMap(filterSettingsTableMap);
                 break;
+            case METRICS:
+                qb.setTables(DATABASE_TABLES[2]);
+                qb.setProjectionMap(metricsTableMap);
+                break;
+            case APP_USAGE_TOTALS:
+                // One aggregate pass instead of a lookup per package
+                qb.setTables(DATABASE_TABLES[0]);
+                qb.setProjectionMap(usageTotalsMap);
+                groupBy = AppUsage_Data.PACKAGE_NAME;
+                break;
             default:
                 throw new IllegalArgumentException("Unknown URI " + uri);
         }
         try {
             Cursor c = qb.query(database, projection, selection, selectionArgs,
-                    null, null, sortOrder);
-            c.setNotificationUri(getContext().getContentResolver(), uri);
+                    groupBy, null, sortOrder);
+            c.setNotificationUri(getContext().getContentResolver(),
+                    groupBy != null ? AppUsage_Data.CONTENT_URI : uri);
             return c;
         } catch (IllegalStateException e) {
             if (Aware.DEBUG)
@@ -309,27 +623,19 @@ public class Provider extends ContentProvider {
     }
 
     @Override
-    public synchronized int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+    public int update(Uri uri, final ContentValues values, final String selection, final String[] selectionArgs) {
         initialiseDatabase();
 
-        database.beginTransaction();
-
-        int count;
-        switch (sUriMatcher.match(uri)) {
-            case APP_USAGE:
-                count = database.update(DATABASE_TABLES[0], values, selection,
-                        selectionArgs);
-                break;
-            case APP_FILTER_SETTINGS:
-                count = database.update(DATABASE_TABLES[1], values, selection,
-                        selectionArgs);
-                break;
-            default:
-                database.endTransaction();
-                throw new IllegalArgumentException("Unknown URI " + uri);
+        final String table = tableOf(uri);
+        if (table == null) {
+            throw new IllegalArgumentException("Unknown URI " + uri);
         }
-        database.setTransactionSuccessful();
-        database.endTransaction();
+        int count = write(new SingleWriter.Command<SQLiteDatabase, Integer>() {
+            @Override
+            public Integer execute(SQLiteDatabase db) {
+                return db.update(table, values, selection, selectionArgs);
+            }
+        });
         getContext().getContentResolver().notifyChange(uri, null, false);
         return count;
     }
@@ -7,7 +7,10 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
+import android.content.pm.ChangedPackages;
+import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
+import android.os.Build;
 import android.os.Bundle;
 import android.preference.CheckBoxPreference;
 import android.preference.EditTextPreference;
@@ -20,9 +23,12 @@ import android.widget.Toast;
 
 import com.aware.Aware;
 import com.aware.Aware_Preferences;
+import com.aware.plugin.app_usage.core.AppFilterMatcher;
 import com.aware.ui.AppCompatPreferenceActivity;
 
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class Settings extends AppCompatPreferenceActivity implements OnSharedPreferenceChangeListener {
@@ -37,6 +43,11 @@ public class Settings extends AppCompatPreferenceActivity implements OnSharedPre
      */
     public static final String FREQUENCY_PLUGIN_APP_USAGE = "plugin_app_usage_frequency";
 
+    /**
+     * Keep raw usage events in an on-device journal for re-sessionization (default off)
+     */
+    public static final String RAW_EVENT_JOURNAL = "plugin_app_usage_raw_journal";
+
     /**
      * App filter mode (blacklist or whitelist)
      */
@@ -94,6 +105,29 @@ public class Settings extends AppCompatPreferenceActivity implements OnSharedPre
         android.util.Log.d("AppUsage", "Removed from device-specific app list: " + packageName);
     }
 
+    /**
+     * 디바이스별 앱 리스트를 한 번에 교체 (변경분이 있을 때만 단일 apply)
+     * @return true if the stored list changed
+     */
+    public static boolean setAppList(Context context, Set<String> packageNames) {
+        String prefsName = getDeviceSpecificPrefsName(context);
+        SharedPreferences prefs = context.getSharedPreferences(prefsName, Context.MODE_PRIVATE);
+        Set<String> appList = prefs.getStringSet(APP_LIST_PREF, new HashSet<String>());
+
+        int added = 0;
+        for (String pkg : packageNames) {
+            if (!appList.contains(pkg)) added++;
+        }
+        int removed = appList.size() - (packageNames.size() - added);
+        if (added == 0 && removed == 0) {
+            return false;
+        }
+
+        prefs.edit().putStringSet(APP_LIST_PREF, new HashSet<>(packageNames)).apply(); // 복사본 저장 (Android 버그 회피)
+        android.util.Log.d("AppUsage", "Device-specific app list replaced: +" + added + " -" + removed);
+        return true;
+    }
+
     // 디바이스별 앱 리스트 가져오기
     public static Set<String> getAppList(Context context) {
         String prefsName = getDeviceSpecificPrefsName(context);
@@ -101,6 +135,33 @@ public class Settings extends AppCompatPreferenceActivity implements OnSharedPre
         return prefs.getStringSet(APP_LIST_PREF, new HashSet<String>());
     }
 
+    /**
+     * Compiled matcher for the current app list, rebuilt only when the stored set changes
+     */
+    private static volatile CompiledAppList compiledAppList;
+
+    // 디바이스별 앱 리스트를 규칙 매처로 컴파일하여 반환 (정확한 패키지명 + 와일드카드 규칙)
+    public static AppFilterMatcher getAppFilterMatcher(Context context) {
+        Set<String> appList = getAppList(context);
+        CompiledAppList compiled = compiledAppList;
+        if (compiled != null && (compiled.source == appList || compiled.source.equals(appList))) {
+            return compiled.matcher;
+        }
+        compiled = new CompiledAppList(appList, AppFilterMatcher.compile(appList));
+        compiledAppList = compiled;
+        return compiled.matcher;
+    }
+
+    private static class CompiledAppList {
+        final Set<String> source;
+        final AppFilterMatcher matcher;
+
+        CompiledAppList(Set<String> source, AppFilterMatcher matcher) {
+            this.source = source;
+            this.matcher = matcher;
+        }
+    }
+
     // 현재 필터 모드 가져오기 (blacklist 또는 whitelist)
     public static String getFilterMode(Context context) {
         return Aware.getSetting(context, APP_FILTER_MODE);
@@ -272,16 +333,49 @@ public class Settings extends AppCompatPreferenceActivity implements OnSharedPre
         }
     }
     
+    /**
+     * Last validated JSON app list, reused while the config string and the installed package set stay the same
+     */
+    private static String cachedAppListSource;
+    private static int cachedPackagesSequence = -1;
+    private static long cachedPackagesSignature;
+    private static Set<String> cachedValidatedAppList;
+
     // JSON 설정에서 쉼표로 구분된 앱 리스트를 디바이스별 SharedPreferences에 저장 (설치된 앱만)
-    public static void setAppListFromString(Context context, String appListString) {
+    public static synchronized void setAppListFromString(Context context, String appListString) {
         if (appListString == null || appListString.trim().isEmpty()) {
             return;
         }
-        
-        String prefsName = getDeviceSpecificPrefsName(context);
-        SharedPreferences prefs = context.getSharedPreferences(prefsName, Context.MODE_PRIVATE);
-        Set<String> appSet = new HashSet<>();
+
         PackageManager pm = context.getPackageManager();
+
+        // 설치된 앱 목록이 바뀌지 않았고 설정 문자열도 같으면 이전 검증 결과 재사용
+        if (appListString.equals(cachedAppListSource) && cachedValidatedAppList != null
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && cachedPackagesSequence >= 0
+                && pm.getChangedPackages(cachedPackagesSequence) == null) {
+            setAppList(context, cachedValidatedAppList);
+            android.util.Log.d("AppUsage", "App list config unchanged, reusing validated list");
+            return;
+        }
+
+        // 설치된 앱 스냅샷 (바인더 호출 1회)
+        int sequence = -1;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            ChangedPackages changed = pm.getChangedPackages(0);
+            sequence = (changed != null) ? changed.getSequenceNumber() : 0;
+        }
+        Set<String> installedPackages = getInstalledPackageNames(pm);
+        long signature = getPackagesSignature(installedPackages);
+
+        if (appListString.equals(cachedAppListSource) && cachedValidatedAppList != null
+                && signature == cachedPackagesSignature) {
+            cachedPackagesSequence = sequence;
+            setAppList(context, cachedValidatedAppList);
+            android.util.Log.d("AppUsage", "App list config unchanged, reusing validated list");
+            return;
+        }
+
+        Set<String> appSet = new HashSet<>();
         
         int totalApps = 0;
         int addedApps = 0;
@@ -293,11 +387,10 @@ public class Settings extends AppCompatPreferenceActivity implements OnSharedPre
             String trimmedApp = app.trim();
             if (!trimmedApp.isEmpty()) {
                 totalApps++;
-                // 앱이 실제로 설치되어 있는지 확인
-                if (isAppInstalled(pm, trimmedApp)) {
+                // 와일드카드 규칙은 설치 여부와 무관하게 유지, 그 외는 실제 설치 여부 확인
+                if (AppFilterMatcher.isPattern(trimmedApp) || installedPackages.contains(trimmedApp)) {
                     appSet.add(trimmedApp);
                     addedApps++;
-                    android.util.Log.d("AppUsage", "Added to app list: " + trimmedApp);
                 } else {
                     // 설치되지 않은 앱은 로그로 알림 (무시)
                     ignoredApps++;
@@ -306,21 +399,35 @@ public class Settings extends AppCompatPreferenceActivity implements OnSharedPre
             }
         }
         
-        prefs.edit().putStringSet(APP_LIST_PREF, appSet).apply();
+        setAppList(context, appSet);
+
+        cachedAppListSource = appListString;
+        cachedPackagesSequence = sequence;
+        cachedPackagesSignature = signature;
+        cachedValidatedAppList = Collections.unmodifiableSet(appSet);
         
         // 결과 요약 로그
         android.util.Log.i("AppUsage", String.format("App list loaded from config: %d total, %d added, %d ignored", 
                                                       totalApps, addedApps, ignoredApps));
     }
     
-    // 앱이 설치되어 있는지 확인하는 헬퍼 메서드
-    private static boolean isAppInstalled(PackageManager pm, String packageName) {
-        try {
-            pm.getPackageInfo(packageName, PackageManager.GET_META_DATA);
-            return true;
-        } catch (PackageManager.NameNotFoundException e) {
-            return false;
+    // 설치된 앱 패키지명 스냅샷
+    private static Set<String> getInstalledPackageNames(PackageManager pm) {
+        List<PackageInfo> packages = pm.getInstalledPackages(0);
+        Set<String> names = new HashSet<>(packages.size() * 2);
+        for (PackageInfo info : packages) {
+            names.add(info.packageName);
+        }
+        return names;
+    }
+
+    // 설치된 앱 집합의 순서 무관 서명 (크기 + 해시 합)
+    private static long getPackagesSignature(Set<String> packageNames) {
+        long sum = 0;
+        for (String name : packageNames) {
+            sum += name.hashCode();
         }
+        return ((long) packageNames.size() << 32) ^ sum;
     }
     
     // SharedPreferences의 앱 리스트를 쉼표로 구분된 문자열로 반환
@@ -453,15 +560,13 @@ public class Settings extends AppCompatPreferenceActivity implements OnSharedPre
             Aware.setSetting(this, key, sharedPreferences.getString(key, "5"));
             frequency.setSummary("Every " + Aware.getSetting(this, FREQUENCY_PLUGIN_APP_USAGE) + " minute(s)");
 
-            // 플러그인 재시작하여 새 수집 주기 적용
-            try {
-                if (Aware.getSetting(this, STATUS_PLUGIN_APP_USAGE).equals("true")) {
-                    Aware.stopPlugin(getApplicationContext(), "com.aware.plugin.app_usage");
-                    Aware.startPlugin(getApplicationContext(), "com.aware.plugin.app_usage");
-                }
-            } catch (Exception e) {
-                Log.e("AppUsage", "Error restarting plugin for frequency change: " + e.getMessage());
-            }
+            // 실행 중인 플러그인에 새 수집 주기 적용 (재시작 없이, 활성 세션 유지)
+            Plugin.reconfigure(getApplicationContext());
+        }
+
+        if (preference.getKey().equals(RAW_EVENT_JOURNAL)) {
+            Aware.setSetting(this, key, sharedPreferences.getBoolean(key, false));
+            Plugin.reconfigure(getApplicationContext());
         }
 
         if (preference.getKey().equals(APP_FILTER_MODE)) {
@@ -469,6 +574,7 @@ public class Settings extends AppCompatPreferenceActivity implements OnSharedPre
             appFilterMode.setSummary(appFilterMode.getEntry());
             // 필터 모드 변경 시 데이터베이스에 저장
             saveFilterSettingsToDatabase(this);
+            // 필터는 체크마다 다시 로드되므로 재구성 불필요 (다음 체크부터 적용)
         }
         
         if (preference.getKey().equals(APP_LIST_SETTING)) {
@@ -476,6 +582,7 @@ public class Settings extends AppCompatPreferenceActivity implements OnSharedPre
             Aware.setSetting(this, key, appListString);
             // JSON 설정에서 온 앱 리스트를 SharedPreferences에 저장
             setAppListFromString(this, appListString);
+            Plugin.reconfigure(getApplicationContext());
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+package com.aware.plugin.app_usage;
+
+import android.app.usage.UsageStats;
+import android.app.usage.UsageStatsManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coarse per-app foreground totals from UsageStats interval buckets
+ * Used for the part of a gap whose raw events UsageStats no longer holds. Buckets are taken finest
+ * first (daily, weekly, monthly) and only when they lie entirely inside the gap and do not overlap a
+ * bucket already taken, so no foreground time is counted twice or outside the gap.
+ */
+class UsageStatsEstimator {
+
+    private static final int[] INTERVALS = {
+            UsageStatsManager.INTERVAL_DAILY,
+            UsageStatsManager.INTERVAL_WEEKLY,
+            UsageStatsManager.INTERVAL_MONTHLY
+    };
+
+    /**
+     * Foreground time of one package in one bucket
+     */
+    static final class Estimate {
+        final String packageName;
+        final long startTime;
+        final long endTime;
+        final long foregroundMs;
+
+        Estimate(String packageName, long startTime, long endTime, long foregroundMs) {
+            this.packageName = packageName;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.foregroundMs = foregroundMs;
+        }
+    }
+
+    private final UsageStatsManager usageStatsManager;
+
+    UsageStatsEstimator(UsageStatsManager usageStatsManager) {
+        this.usageStatsManager = usageStatsManager;
+    }
+
+    /**
+     * Estimates for [start, end), one per package and bucket with foreground time
+     */
+    List<Estimate> estimate(long start, long end) {
+        List<Estimate> estimates = new ArrayList<>();
+        List<long[]> taken = new ArrayList<>();
+
+        for (int interval : INTERVALS) {
+            List<UsageStats> stats = usageStatsManager.queryUsageStats(interval, start, end);
+            if (stats == null || stats.isEmpty()) continue;
+
+            // Per-package stats of one bucket share its begin time
+            Map<Long, List<UsageStats>> buckets = new LinkedHashMap<>();
+            Map<Long, Long> bucketEnds = new LinkedHashMap<>();
+            for (UsageStats packageStats : stats) {
+                long bucketStart = packageStats.getFirstTimeStamp();
+                List<UsageStats> bucket = buckets.get(bucketStart);
+                if (bucket == null) {
+                    bucket = new ArrayList<>();
+                    buckets.put(bucketStart, bucket);
+                    bucketEnds.put(bucketStart, packageStats.getLastTimeStamp());
+                } else if (packageStats.getLastTimeStamp() > bucketEnds.get(bucketStart)) {
+                    bucketEnds.put(bucketStart, packageStats.getLastTimeStamp());
+                }
+                bucket.add(packageStats);
+            }
+
+            for (Map.Entry<Long, List<UsageStats>> bucket : buckets.entrySet()) {
+                long bucketStart = bucket.getKey();
+                long bucketEnd = bucketEnds.get(bucketStart);
+                if (bucketStart < start || bucketEnd > end || overlaps(taken, bucketStart, bucketEnd)) continue;
+                taken.add(new long[]{bucketStart, bucketEnd});
+
+                for (UsageStats packageStats : bucket.getValue()) {
+                    if (packageStats.getTotalTimeInForeground() <= 0) continue;
+                    estimates.add(new Estimate(packageStats.getPackageName(), bucketStart, bucketEnd,
+                            packageStats.getTotalTimeInForeground()));
+                }
+            }
+        }
+        return estimates;
+    }
+
+    private static boolean overlaps(List<long[]> ranges, long start, long end) {
+        for (long[] range : ranges) {
+            if (start < range[1] && range[0] < end) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,113 @@
+package com.aware.plugin.app_usage;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Recent per-package usage totals for the "most used" sort of the app list
+ * One GROUP BY query (Provider.AppUsage_Totals) over the event-level sessions that ended in the last
+ * 7 days, served by the covering end_time index off the UI thread; cached for a few minutes.
+ */
+final class UsageTotalsCache {
+
+    private static final String TAG = "AWARE::UsageTotals";
+
+    static final long WINDOW_MS = 7L * 24 * 60 * 60 * 1000; // last 7 days
+    private static final long MAX_AGE_MS = 5L * 60 * 1000;
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private static Map<String, Double> cachedTotals;
+    private static long cachedAt;
+
+    /**
+     * Callback on the main thread with usage seconds keyed by package name
+     */
+    interface Listener {
+        void onUsageTotals(Map<String, Double> totals);
+    }
+
+    private UsageTotalsCache() {
+    }
+
+    /**
+     * Cached totals if still fresh, otherwise null
+     */
+    static synchronized Map<String, Double> getCached() {
+        if (cachedTotals != null && SystemClock.elapsedRealtime() - cachedAt < MAX_AGE_MS) {
+            return cachedTotals;
+        }
+        return null;
+    }
+
+    /**
+     * Deliver the totals to the listener, querying the provider in the background when the cache is stale
+     */
+    static void load(Context context, final Listener listener) {
+        Map<String, Double> cached = getCached();
+        if (cached != null) {
+            listener.onUsageTotals(cached);
+            return;
+        }
+
+        final Context appContext = context.getApplicationContext();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Map<String, Double> fresh = getCached();
+                if (fresh == null) {
+                    fresh = query(appContext);
+                    synchronized (UsageTotalsCache.class) {
+                        cachedTotals = fresh;
+                        cachedAt = SystemClock.elapsedRealtime();
+                    }
+                }
+                final Map<String, Double> totals = fresh;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onUsageTotals(totals);
+                    }
+                });
+            }
+        });
+    }
+
+    private static Map<String, Double> query(Context context) {
+        Map<String, Double> totals = new HashMap<>();
+        String[] projection = {Provider.AppUsage_Totals.PACKAGE_NAME, Provider.AppUsage_Totals.TOTAL_USAGE};
+        // By when the usage happened: a backfill inserts days of sessions at once. Estimated bucket
+        // totals are left out: they are coarse and may start long before the window
+        String selection = Provider.AppUsage_Data.END_TIME + " >= ? AND " + Provider.AppUsage_Data.ESTIMATED + " = 0";
+        String[] selectionArgs = {String.valueOf(System.currentTimeMillis() - WINDOW_MS)};
+
+        Cursor cursor = null;
+        try {
+            cursor = context.getContentResolver().query(Provider.AppUsage_Totals.CONTENT_URI,
+                    projection, selection, selectionArgs, null);
+            if (cursor != null) {
+                while (cursor.moveToNext()) {
+                    totals.put(cursor.getString(0), cursor.getDouble(1));
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to load usage totals: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return Collections.unmodifiableMap(totals);
+    }
+}
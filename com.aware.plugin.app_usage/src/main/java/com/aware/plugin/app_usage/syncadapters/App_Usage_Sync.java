@@ -23,12 +23,13 @@ public class App_Usage_Sync extends Service {
         super.onCreate();
         synchronized (sSyncAdapterLock) {
             if (sSyncAdapter == null) {
-                sSyncAdapter = new AwareSyncAdapter(getApplicationContext(), true, true);
+                sSyncAdapter = new UploadDelaySyncAdapter(getApplicationContext());
                 sSyncAdapter.init(
                         Provider.DATABASE_TABLES, Provider.TABLES_FIELDS,
                         new Uri[]{
                                 Provider.AppUsage_Data.CONTENT_URI,
-                                Provider.AppFilterSettings_Data.CONTENT_URI
+                                Provider.AppFilterSettings_Data.CONTENT_URI,
+                                Provider.Metrics_Data.CONTENT_URI
                         }
                 );
             }
@@ -0,0 +1,124 @@
+package com.aware.plugin.app_usage.syncadapters;
+
+import android.accounts.Account;
+import android.content.ContentProviderClient;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.content.SyncResult;
+import android.database.Cursor;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.BatteryManager;
+import android.os.Bundle;
+import android.util.Log;
+
+import com.aware.Aware;
+import com.aware.Aware_Preferences;
+import com.aware.plugin.app_usage.Provider;
+import com.aware.plugin.app_usage.core.PipelineMetrics;
+import com.aware.syncadapters.AwareSyncAdapter;
+
+/**
+ * AWARE sync adapter that also measures how stale uploaded sessions are
+ * AwareSyncAdapter uploads every row newer than the server's latest one, so after a sync that actually
+ * ran and ended without errors, every session row that was already committed when the sync started
+ * (_id up to the newest one at that point) and not counted before is counted as uploaded: its
+ * end_time to now goes into the UPLOAD_DELAY histogram. Rows committed while the sync runs are
+ * left for the next sync, which is the one that reads them. Estimated rows (bucket totals written
+ * after a gap) are not sessions and are left out.
+ * AwareSyncAdapter also returns without an error when it skips the upload (no study, Wi-Fi only
+ * off Wi-Fi, charging only while not charging); those syncs record nothing and keep the mark.
+ */
+class UploadDelaySyncAdapter extends AwareSyncAdapter {
+
+    private static final String TAG = "AWARE::App Usage Sync";
+
+    private static final String PREFS_NAME = "AppUsageSync";
+    private static final String PREF_UPLOAD_MARK_ID = "upload_mark_id"; // _id of the last uploaded row
+
+    private final Context context;
+
+    UploadDelaySyncAdapter(Context context) {
+        super(context, true, true);
+        this.context = context;
+    }
+
+    @Override
+    public void onPerformSync(Account account, Bundle extras, String authority,
+                              ContentProviderClient provider, SyncResult syncResult) {
+        boolean uploads = willUpload();
+        long lastCommittedId = uploads ? lastCommittedId() : -1;
+        super.onPerformSync(account, extras, authority, provider, syncResult);
+        if (uploads && !syncResult.hasError() && lastCommittedId >= 0) {
+            recordUploadDelays(lastCommittedId);
+        }
+    }
+
+    /**
+     * Same preconditions AwareSyncAdapter checks before posting rows
+     */
+    private boolean willUpload() {
+        if (!Aware.isStudy(context)) return false;
+        if (Aware.getSetting(context, Aware_Preferences.WEBSERVICE_WIFI_ONLY).equals("true") && !isOnWifi()) {
+            return false;
+        }
+        return !Aware.getSetting(context, Aware_Preferences.WEBSERVICE_CHARGING).equals("true") || isCharging();
+    }
+
+    private boolean isOnWifi() {
+        ConnectivityManager connectivity = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo network = connectivity != null ? connectivity.getActiveNetworkInfo() : null;
+        return network != null && network.isConnected() && network.getType() == ConnectivityManager.TYPE_WIFI;
+    }
+
+    private boolean isCharging() {
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery == null) return false;
+        int status = battery.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+        return status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
+    }
+
+    /**
+     * Newest row id visible to the sync (0 with an empty table), or -1 when it cannot be read
+     */
+    private long lastCommittedId() {
+        Cursor cursor = context.getContentResolver().query(Provider.AppUsage_Data.CONTENT_URI,
+                new String[]{Provider.AppUsage_Data._ID}, null, null,
+                Provider.AppUsage_Data._ID + " DESC LIMIT 1");
+        if (cursor == null) return -1;
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void recordUploadDelays(long lastCommittedId) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        long uploadTime = System.currentTimeMillis();
+
+        // First sync with tracking: older rows would report their whole age, start counting from here
+        if (prefs.contains(PREF_UPLOAD_MARK_ID)) {
+            long markId = prefs.getLong(PREF_UPLOAD_MARK_ID, 0);
+            PipelineMetrics metrics = PipelineMetrics.global();
+            Cursor cursor = context.getContentResolver().query(Provider.AppUsage_Data.CONTENT_URI,
+                    new String[]{Provider.AppUsage_Data.END_TIME},
+                    Provider.AppUsage_Data._ID + " > ? AND " + Provider.AppUsage_Data._ID + " <= ? AND "
+                            + Provider.AppUsage_Data.ESTIMATED + " = 0",
+                    new String[]{String.valueOf(markId), String.valueOf(lastCommittedId)}, null);
+            if (cursor != null) {
+                try {
+                    while (cursor.moveToNext()) {
+                        metrics.record(PipelineMetrics.Latency.UPLOAD_DELAY, uploadTime - cursor.getLong(0));
+                    }
+                    Log.d(TAG, "Upload delay recorded for " + cursor.getCount() + " sessions");
+                } finally {
+                    cursor.close();
+                }
+            }
+        }
+        prefs.edit().putLong(PREF_UPLOAD_MARK_ID, lastCommittedId).apply();
+    }
+}